@@ -0,0 +1,263 @@
+package club.hellin.util.basicinventories.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Generates an InventoryHandlerTable for every CaseByCaseInventory subclass with handlers, so constructing it needs no reflection.
+ * Handlers are listed in source order, bound with method references and their parameters are checked here instead of at runtime
+ */
+@SupportedAnnotationTypes({InventoryHandlerProcessor.HANDLER, InventoryHandlerProcessor.TOGGLE_HANDLER})
+public final class InventoryHandlerProcessor extends AbstractProcessor {
+    static final String HANDLER = "club.hellin.util.basicinventories.InventoryHandler";
+    static final String TOGGLE_HANDLER = "club.hellin.util.basicinventories.InventoryToggleHandler";
+
+    private static final String CASE_BY_CASE_INVENTORY = "club.hellin.util.basicinventories.type.CaseByCaseInventory";
+    private static final String HANDLER_TABLE = "club.hellin.util.basicinventories.type.InventoryHandlerTable";
+    private static final String INVENTORY_CLICK = "club.hellin.util.basicinventories.objects.InventoryClick";
+    private static final String MATERIAL = "org.bukkit.Material";
+    private static final String SUFFIX = "_HandlerTable";
+
+    private Elements elements;
+    private Types types;
+    private Filer filer;
+    private Messager messager;
+
+    @Override
+    public synchronized void init(final ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+
+        this.elements = processingEnv.getElementUtils();
+        this.types = processingEnv.getTypeUtils();
+        this.filer = processingEnv.getFiler();
+        this.messager = processingEnv.getMessager();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        final Set<TypeElement> classes = new LinkedHashSet<>();
+
+        for (final TypeElement annotation : annotations) {
+            for (final Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.METHOD)
+                    classes.add((TypeElement) element.getEnclosingElement());
+            }
+        }
+
+        for (final TypeElement clazz : classes)
+            this.generate(clazz);
+
+        return false;
+    }
+
+    private void generate(final TypeElement clazz) {
+        final TypeElement caseByCase = this.elements.getTypeElement(CASE_BY_CASE_INVENTORY);
+
+        if (caseByCase == null)
+            return;
+
+        if (!this.types.isSubtype(this.types.erasure(clazz.asType()), this.types.erasure(caseByCase.asType()))) {
+            this.messager.printMessage(Diagnostic.Kind.ERROR, "Inventory handlers must be declared in a CaseByCaseInventory", clazz);
+            return;
+        }
+
+        // The table can only reference classes it can see, these keep using reflection at runtime
+        if (!this.isAccessible(clazz)) {
+            this.messager.printMessage(Diagnostic.Kind.NOTE, "No handler table generated, the class is not accessible from its package", clazz);
+            return;
+        }
+
+        final List<String> entries = new ArrayList<>();
+        boolean valid = true;
+
+        for (final Element element : clazz.getEnclosedElements()) {
+            if (element.getKind() != ElementKind.METHOD)
+                continue;
+
+            final ExecutableElement method = (ExecutableElement) element;
+            final AnnotationMirror handler = this.getAnnotation(method, HANDLER);
+            final AnnotationMirror toggleHandler = this.getAnnotation(method, TOGGLE_HANDLER);
+
+            if (handler == null && toggleHandler == null)
+                continue;
+
+            if (!this.validate(method, handler, toggleHandler)) {
+                valid = false;
+                continue;
+            }
+
+            entries.add(handler != null ? this.createHandlerEntry(clazz, method, handler) : this.createToggleEntry(clazz, method, toggleHandler));
+        }
+
+        if (!valid)
+            return;
+
+        this.write(clazz, entries);
+    }
+
+    private boolean validate(final ExecutableElement method, final AnnotationMirror handler, final AnnotationMirror toggleHandler) {
+        if (handler != null && toggleHandler != null) {
+            this.messager.printMessage(Diagnostic.Kind.ERROR, "A handler can not be both an InventoryHandler and an InventoryToggleHandler", method);
+            return false;
+        }
+
+        final TypeElement click = this.elements.getTypeElement(INVENTORY_CLICK);
+
+        if (method.getParameters().size() != 1 || click == null || !this.types.isSameType(method.getParameters().get(0).asType(), click.asType())) {
+            this.messager.printMessage(Diagnostic.Kind.ERROR, "Inventory handlers must take a single InventoryClick parameter", method);
+            return false;
+        }
+
+        return true;
+    }
+
+    private String createHandlerEntry(final TypeElement clazz, final ExecutableElement method, final AnnotationMirror handler) {
+        final Map<String, Object> values = this.getValues(handler);
+
+        final VariableElement type = (VariableElement) values.get("type");
+        // Array members are a list of AnnotationValue, cast per element so the cast is checked
+        final List<?> lore = (List<?>) values.get("lore");
+
+        final String loreArray = lore.stream()
+                .map(line -> this.elements.getConstantExpression(((AnnotationValue) line).getValue()))
+                .collect(Collectors.joining(", ", "new String[] {", "}"));
+
+        return String.format("%s.Entry.<%s>handler(%s, %s.%s, %s, %s, %s, %s, %s)",
+                HANDLER_TABLE,
+                clazz.getQualifiedName(),
+                this.elements.getConstantExpression(method.getSimpleName().toString()),
+                MATERIAL,
+                type.getSimpleName(),
+                this.elements.getConstantExpression(values.get("name")),
+                loreArray,
+                values.get("enchanted"),
+                values.get("switcher"),
+                this.createBinder(clazz, method));
+    }
+
+    private String createToggleEntry(final TypeElement clazz, final ExecutableElement method, final AnnotationMirror toggleHandler) {
+        final Map<String, Object> values = this.getValues(toggleHandler);
+
+        return String.format("%s.Entry.<%s>toggle(%s, %s, %s)",
+                HANDLER_TABLE,
+                clazz.getQualifiedName(),
+                this.elements.getConstantExpression(method.getSimpleName().toString()),
+                this.elements.getConstantExpression(values.get("name")),
+                this.createBinder(clazz, method));
+    }
+
+    /**
+     * A method reference for handlers the table can call, null for private ones which are then looked up by name
+     * @param clazz
+     * @param method
+     * @return
+     */
+    private String createBinder(final TypeElement clazz, final ExecutableElement method) {
+        final Set<Modifier> modifiers = method.getModifiers();
+
+        if (modifiers.contains(Modifier.PRIVATE))
+            return "null";
+
+        if (modifiers.contains(Modifier.STATIC))
+            return String.format("inventory -> %s::%s", clazz.getQualifiedName(), method.getSimpleName());
+
+        return String.format("inventory -> inventory::%s", method.getSimpleName());
+    }
+
+    private void write(final TypeElement clazz, final List<String> entries) {
+        final PackageElement packageElement = this.elements.getPackageOf(clazz);
+        final String packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+
+        final String binaryName = this.elements.getBinaryName(clazz).toString();
+        final String simpleName = packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1);
+        final String tableName = simpleName.replace('$', '_') + SUFFIX;
+        final String qualifiedTableName = packageName.isEmpty() ? tableName : packageName + "." + tableName;
+
+        final String inventoryName = clazz.getQualifiedName().toString();
+
+        try (final Writer writer = this.filer.createSourceFile(qualifiedTableName, clazz).openWriter()) {
+            if (!packageName.isEmpty())
+                writer.write(String.format("package %s;%n%n", packageName));
+
+            writer.write(String.format("@javax.annotation.processing.Generated(\"%s\")%n", InventoryHandlerProcessor.class.getName()));
+            writer.write(String.format("public final class %s implements %s<%s> {%n", tableName, HANDLER_TABLE, inventoryName));
+            writer.write(String.format("    private static final java.util.List<%s.Entry<%s>> ENTRIES = java.util.List.of(%n", HANDLER_TABLE, inventoryName));
+            writer.write(entries.stream().map(entry -> "            " + entry).collect(Collectors.joining(String.format(",%n"))));
+            writer.write(String.format("%n    );%n%n"));
+            writer.write(String.format("    @Override%n"));
+            writer.write(String.format("    public java.util.List<%s.Entry<%s>> getEntries() {%n", HANDLER_TABLE, inventoryName));
+            writer.write(String.format("        return ENTRIES;%n"));
+            writer.write(String.format("    }%n"));
+            writer.write(String.format("}%n"));
+        } catch (final IOException exception) {
+            this.messager.printMessage(Diagnostic.Kind.ERROR, String.format("Could not write %s: %s", qualifiedTableName, exception.getMessage()), clazz);
+        }
+    }
+
+    private boolean isAccessible(final TypeElement clazz) {
+        Element element = clazz;
+
+        while (element instanceof TypeElement) {
+            final TypeElement type = (TypeElement) element;
+
+            if (type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS)
+                return false;
+
+            if (type.getModifiers().contains(Modifier.PRIVATE))
+                return false;
+
+            element = type.getEnclosingElement();
+        }
+
+        return true;
+    }
+
+    private AnnotationMirror getAnnotation(final Element element, final String name) {
+        for (final AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            final TypeElement annotation = (TypeElement) mirror.getAnnotationType().asElement();
+
+            if (annotation.getQualifiedName().contentEquals(name))
+                return mirror;
+        }
+
+        return null;
+    }
+
+    private Map<String, Object> getValues(final AnnotationMirror mirror) {
+        final Map<? extends ExecutableElement, ? extends AnnotationValue> values = this.elements.getElementValuesWithDefaults(mirror);
+
+        return values.entrySet().stream()
+                .collect(Collectors.toMap(entry -> entry.getKey().getSimpleName().toString(), entry -> entry.getValue().getValue()));
+    }
+}
@@ -0,0 +1,97 @@
+package club.hellin.util.basicinventories;
+
+import be.seeseemelk.mockbukkit.MockBukkit;
+import be.seeseemelk.mockbukkit.ServerMock;
+import club.hellin.util.basicinventories.objects.InventoryClick;
+import club.hellin.util.basicinventories.type.CaseByCaseInventory;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.event.inventory.InventoryAction;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryView;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Click dispatch through the slot table of the holder and through the index tag on the clicked item
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CaseByCaseHandleBenchmark {
+    @InventoryProperties(title = "&bHandlers")
+    public static final class HandlerMenu extends CaseByCaseInventory {
+        private int clicks;
+
+        @InventoryHandler(type = Material.DIAMOND, name = "&bFirst")
+        public void first(final InventoryClick click) {
+            ++this.clicks;
+        }
+
+        @InventoryHandler(type = Material.EMERALD, name = "&aSecond")
+        public void second(final InventoryClick click) {
+            ++this.clicks;
+        }
+
+        @InventoryHandler(type = Material.GOLD_INGOT, name = "&eThird")
+        public void third(final InventoryClick click) {
+            ++this.clicks;
+        }
+
+        @InventoryHandler(type = Material.IRON_INGOT, name = "&7Fourth")
+        public void fourth(final InventoryClick click) {
+            ++this.clicks;
+        }
+    }
+
+    private HandlerMenu menu;
+    private InventoryClick slotClick;
+    private InventoryClick tagClick;
+
+    @Setup
+    public void setup() {
+        final ServerMock server = MockBukkit.mock();
+        InventoryManager.getInstance().init(MockBukkit.createMockPlugin());
+
+        this.menu = new HandlerMenu();
+        InventoryManager.getInstance().register(this.menu);
+
+        final Player player = server.addPlayer();
+        final Inventory inventory = this.menu.createInventory(player);
+        final InventoryView view = player.openInventory(inventory);
+
+        int slot = 0;
+
+        while (slot < inventory.getSize() && inventory.getItem(slot) == null)
+            ++slot;
+
+        final ItemStack item = inventory.getItem(slot);
+        final InventoryClickEvent event = new InventoryClickEvent(view, InventoryType.SlotType.CONTAINER, slot, ClickType.LEFT, InventoryAction.PICKUP_ALL);
+
+        this.slotClick = new InventoryClick(event, player, view, item);
+        this.tagClick = new InventoryClick(null, player, view, item);
+    }
+
+    @TearDown
+    public void tearDown() {
+        InventoryManager.getInstance().remove(this.menu);
+        MockBukkit.unmock();
+    }
+
+    @Benchmark
+    public int bySlot() {
+        this.menu.handle(this.slotClick);
+        return this.menu.clicks;
+    }
+
+    @Benchmark
+    public int byTag() {
+        this.menu.handle(this.tagClick);
+        return this.menu.clicks;
+    }
+}
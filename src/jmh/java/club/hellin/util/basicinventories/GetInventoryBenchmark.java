@@ -0,0 +1,82 @@
+package club.hellin.util.basicinventories;
+
+import be.seeseemelk.mockbukkit.MockBukkit;
+import be.seeseemelk.mockbukkit.ServerMock;
+import club.hellin.util.basicinventories.objects.InventoryClick;
+import club.hellin.util.basicinventories.type.CaseByCaseInventory;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.InventoryView;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolving the menu of a view with many menus registered, through the holder and through the title fallback
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GetInventoryBenchmark {
+    @InventoryProperties(title = "&bMenu")
+    public static final class TitledMenu extends CaseByCaseInventory {
+        public TitledMenu(final String title) {
+            super.setTitle(title);
+        }
+
+        @InventoryHandler(type = Material.DIAMOND, name = "&bClick")
+        public void click(final InventoryClick click) {
+        }
+    }
+
+    @Param({"10", "100", "1000"})
+    private int menus;
+
+    private final List<TitledMenu> registered = new ArrayList<>();
+    private InventoryView holderView;
+    private InventoryView titleView;
+
+    @Setup
+    public void setup() {
+        final ServerMock server = MockBukkit.mock();
+        InventoryManager.getInstance().init(MockBukkit.createMockPlugin());
+
+        for (int i = 0; i < this.menus; ++i) {
+            final TitledMenu menu = new TitledMenu("&bMenu " + i);
+
+            InventoryManager.getInstance().register(menu);
+            this.registered.add(menu);
+        }
+
+        // The last menu registered is the worst case for the fallback loop
+        final TitledMenu last = this.registered.get(this.registered.size() - 1);
+
+        final Player holderViewer = server.addPlayer();
+        this.holderView = holderViewer.openInventory(last.createInventory(holderViewer));
+
+        final Player titleViewer = server.addPlayer();
+        this.titleView = titleViewer.openInventory(Bukkit.createInventory(null, 9, last.getTitle()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (final TitledMenu menu : this.registered)
+            InventoryManager.getInstance().remove(menu);
+
+        this.registered.clear();
+        MockBukkit.unmock();
+    }
+
+    @Benchmark
+    public AbstractInventory byHolder() {
+        return InventoryManager.getInstance().getInventory(this.holderView);
+    }
+
+    @Benchmark
+    public AbstractInventory byTitle() {
+        return InventoryManager.getInstance().getInventory(this.titleView);
+    }
+}
@@ -0,0 +1,50 @@
+package club.hellin.util.basicinventories;
+
+import club.hellin.util.basicinventories.objects.InventoryClick;
+import club.hellin.util.basicinventories.utils.HandlerCompiler;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the old per click Method.invoke dispatch with the handlers compiled by {@link HandlerCompiler}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HandlerDispatchBenchmark {
+    public static final class Target {
+        private int clicks;
+
+        private void onClick(final InventoryClick click) {
+            ++this.clicks;
+        }
+    }
+
+    private Target target;
+    private Method method;
+    private InventoryClickHandler handler;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        this.target = new Target();
+        this.method = Target.class.getDeclaredMethod("onClick", InventoryClick.class);
+        this.handler = HandlerCompiler.compile(this.target, this.method);
+    }
+
+    @Benchmark
+    public int reflective() throws Exception {
+        this.method.setAccessible(true);
+        this.method.invoke(this.target, (Object) null);
+
+        return this.target.clicks;
+    }
+
+    @Benchmark
+    public int compiled() throws Throwable {
+        this.handler.handle(null);
+
+        return this.target.clicks;
+    }
+}
@@ -0,0 +1,72 @@
+package club.hellin.util.basicinventories;
+
+import be.seeseemelk.mockbukkit.MockBukkit;
+import club.hellin.util.basicinventories.utils.ItemStackBuilder;
+import org.bukkit.Material;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builder chains as menus use them, from a bare named item to a fully decorated one, writing meta per change or once on build
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ItemStackBuilderBenchmark {
+    @Param({"false", "true"})
+    private boolean deferred;
+
+    private ItemStack existing;
+
+    @Setup
+    public void setup() {
+        MockBukkit.mock();
+
+        this.existing = new ItemStackBuilder(Material.PAPER)
+                .setDisplayName("&fExisting")
+                .setLore("&7First line", "&7Second line")
+                .build();
+    }
+
+    private ItemStackBuilder create(final Material material) {
+        return this.create(new ItemStack(material));
+    }
+
+    private ItemStackBuilder create(final ItemStack item) {
+        return this.deferred ? ItemStackBuilder.deferred(item) : new ItemStackBuilder(item);
+    }
+
+    @TearDown
+    public void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    @Benchmark
+    public ItemStack named() {
+        return this.create(Material.DIAMOND).setDisplayName("&bDiamond").build();
+    }
+
+    @Benchmark
+    public ItemStack decorated() {
+        return this.create(Material.DIAMOND)
+                .setDisplayName("&bDiamond")
+                .setLore("&7First line", "&7Second line", "&7Third line")
+                .addEnchant(Enchantment.KNOCKBACK)
+                .hideEnchants()
+                .unbreakable()
+                .amount(16)
+                .build();
+    }
+
+    @Benchmark
+    public ItemStack modifyExisting() {
+        // A copy, so the lore does not grow across invocations
+        return this.create(this.existing.clone())
+                .addLoreLine("&7Added line")
+                .removeLoreLineIf(line -> line.contains("First"))
+                .build();
+    }
+}
@@ -0,0 +1,122 @@
+package club.hellin.util.basicinventories;
+
+import be.seeseemelk.mockbukkit.MockBukkit;
+import be.seeseemelk.mockbukkit.ServerMock;
+import club.hellin.util.basicinventories.objects.InventoryClick;
+import club.hellin.util.basicinventories.type.ListInventory;
+import club.hellin.util.basicinventories.utils.ItemStackBuilder;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.event.inventory.InventoryAction;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryView;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opening a list menu loads and filters every element, rendering a page again only slices the player's snapshot
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ListPagingBenchmark {
+    @InventoryProperties(title = "&bElements")
+    public static final class ElementMenu extends ListInventory<Integer> {
+        private final List<Integer> elements;
+
+        public ElementMenu(final List<Integer> elements) {
+            this.elements = elements;
+        }
+
+        @Override
+        public ItemStack convertFrom(final Integer element) {
+            return ItemStackBuilder.deferred(Material.PAPER).setDisplayName("&f#" + element).build();
+        }
+
+        @Override
+        public Collection<Integer> provide(final Player player) {
+            return this.elements;
+        }
+
+        @Override
+        public void handle(final InventoryClick click, final Integer element) {
+        }
+    }
+
+    @Param({"1000", "10000", "100000"})
+    private int elements;
+
+    private ElementMenu menu;
+    private Player player;
+    private Inventory inventory;
+    private InventoryClick nextPage;
+    private InventoryClick previousPage;
+
+    @Setup
+    public void setup() {
+        final ServerMock server = MockBukkit.mock();
+        InventoryManager.getInstance().init(MockBukkit.createMockPlugin());
+
+        final List<Integer> elements = new ArrayList<>(this.elements);
+
+        for (int i = 0; i < this.elements; ++i)
+            elements.add(i);
+
+        this.menu = new ElementMenu(elements);
+        InventoryManager.getInstance().register(this.menu);
+
+        this.player = server.addPlayer();
+        this.inventory = this.menu.createInventory(this.player);
+        final InventoryView view = this.player.openInventory(this.inventory);
+
+        // The page buttons sit in the first and last slot of the bottom row
+        final int size = this.inventory.getSize();
+        this.previousPage = this.createClick(view, size - 9);
+        this.nextPage = this.createClick(view, size - 1);
+    }
+
+    /**
+     * A click with an event, so it is routed through the slot table like clicks on a server
+     */
+    private InventoryClick createClick(final InventoryView view, final int slot) {
+        final InventoryClickEvent event = new InventoryClickEvent(view, InventoryType.SlotType.CONTAINER, slot, ClickType.LEFT, InventoryAction.PICKUP_ALL);
+        return new InventoryClick(event, this.player, view, this.inventory.getItem(slot));
+    }
+
+    @TearDown
+    public void tearDown() {
+        InventoryManager.getInstance().remove(this.menu);
+        MockBukkit.unmock();
+    }
+
+    @Benchmark
+    public Inventory open() {
+        return this.menu.createInventory(this.player);
+    }
+
+    @Benchmark
+    public Inventory renderPage() {
+        this.menu.setItems(this.player, this.inventory);
+        return this.inventory;
+    }
+
+    @Benchmark
+    public Inventory turnPage() {
+        // Forth and back, so every invocation starts on the first page, each flip renders the new page
+        this.menu.handle(this.nextPage);
+        this.menu.setItems(this.player, this.inventory);
+
+        this.menu.handle(this.previousPage);
+        this.menu.setItems(this.player, this.inventory);
+
+        return this.inventory;
+    }
+}
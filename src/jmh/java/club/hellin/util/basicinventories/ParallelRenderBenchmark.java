@@ -0,0 +1,88 @@
+package club.hellin.util.basicinventories;
+
+import be.seeseemelk.mockbukkit.MockBukkit;
+import be.seeseemelk.mockbukkit.ServerMock;
+import club.hellin.util.basicinventories.objects.InventoryClick;
+import club.hellin.util.basicinventories.scheduler.ExecutorMenuScheduler;
+import club.hellin.util.basicinventories.type.CaseByCaseInventory;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders one menu for many players through the in process scheduler, to compare one render thread against several
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ParallelRenderBenchmark {
+    @InventoryProperties(title = "&bBenchmark")
+    public static final class BenchmarkMenu extends CaseByCaseInventory {
+        @InventoryHandler(type = Material.DIAMOND, name = "&bFirst")
+        public void first(final InventoryClick click) {}
+
+        @InventoryHandler(type = Material.EMERALD, name = "&aSecond", lore = {"&7Some lore"})
+        public void second(final InventoryClick click) {}
+
+        @InventoryToggleHandler(name = "&eToggle")
+        public void toggle(final InventoryClick click) {}
+    }
+
+    @Param({"1", "4"})
+    private int threads;
+
+    @Param({"100"})
+    private int players;
+
+    private ExecutorMenuScheduler scheduler;
+    private BenchmarkMenu menu;
+    private Player[] viewers;
+    private Inventory[] inventories;
+
+    @Setup
+    public void setup() {
+        final ServerMock server = MockBukkit.mock();
+        InventoryManager.getInstance().init(MockBukkit.createMockPlugin());
+
+        this.scheduler = new ExecutorMenuScheduler(this.threads);
+        InventoryManager.getInstance().setScheduler(this.scheduler);
+
+        this.menu = new BenchmarkMenu();
+        this.viewers = new Player[this.players];
+        this.inventories = new Inventory[this.players];
+
+        for (int i = 0; i < this.players; ++i) {
+            this.viewers[i] = server.addPlayer();
+            this.inventories[i] = this.menu.createInventory(this.viewers[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.scheduler.shutdown();
+        MockBukkit.unmock();
+    }
+
+    @Benchmark
+    public void renderAll() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(this.players);
+
+        for (int i = 0; i < this.players; ++i) {
+            final Player player = this.viewers[i];
+            final Inventory inventory = this.inventories[i];
+
+            this.scheduler.run(player, () -> {
+                // Cleared first so every iteration writes all slots instead of diffing to nothing
+                inventory.clear();
+                this.menu.setItems(player, inventory);
+                latch.countDown();
+            });
+        }
+
+        latch.await();
+    }
+}
@@ -0,0 +1,43 @@
+package club.hellin.util.basicinventories;
+
+import be.seeseemelk.mockbukkit.MockBukkit;
+import club.hellin.util.basicinventories.utils.ItemTagCodec;
+import club.hellin.util.basicinventories.utils.PdcItemTagCodec;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tag + verify on the PDC codec. The NBT codec needs NMS, which the mocked server does not have,
+ * so it is compared against PDC on a real server with TagCodecServerHarness
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TagCodecBenchmark {
+    private static final String INVENTORY = "BENCHMARK";
+
+    private ItemTagCodec codec;
+    private ItemStack item;
+
+    @Setup
+    public void setup() {
+        MockBukkit.mock();
+
+        this.codec = new PdcItemTagCodec(MockBukkit.createMockPlugin());
+        this.item = new ItemStack(Material.DIAMOND);
+    }
+
+    @TearDown
+    public void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    @Benchmark
+    public boolean tagAndVerify() {
+        final ItemStack tagged = this.codec.write(this.item, INVENTORY, 3);
+        return INVENTORY.equals(this.codec.readInventory(tagged)) && this.codec.readIndex(tagged) == 3;
+    }
+}
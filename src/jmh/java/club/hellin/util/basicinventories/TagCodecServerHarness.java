@@ -0,0 +1,64 @@
+package club.hellin.util.basicinventories;
+
+import club.hellin.util.basicinventories.utils.ItemTagCodec;
+import club.hellin.util.basicinventories.utils.NbtItemTagCodec;
+import club.hellin.util.basicinventories.utils.PdcItemTagCodec;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Manual counterpart of TagCodecBenchmark for a real server, where NBT-API can reach NMS.
+ * Copy it into a test plugin with this library shaded and call run from onEnable, the results are logged by that plugin
+ */
+public final class TagCodecServerHarness {
+    private static final String INVENTORY = "BENCHMARK";
+    private static final int WARMUP_ITERATIONS = 200_000;
+    private static final int ITERATIONS = 1_000_000;
+
+    /**
+     * Must be called on the main thread
+     * @param plugin
+     * @return Mean nanoseconds per tag + verify, by codec
+     */
+    public static Map<String, Long> run(final Plugin plugin) {
+        final Map<String, ItemTagCodec> codecs = new LinkedHashMap<>();
+        codecs.put("PDC", new PdcItemTagCodec(plugin));
+        codecs.put("NBT", new NbtItemTagCodec());
+
+        final ItemStack item = new ItemStack(Material.DIAMOND);
+        final Map<String, Long> results = new LinkedHashMap<>();
+
+        for (final Map.Entry<String, ItemTagCodec> entry : codecs.entrySet()) {
+            final ItemTagCodec codec = entry.getValue();
+
+            // Consumed below so the JIT can not drop the calls
+            int verified = measure(codec, item, WARMUP_ITERATIONS);
+
+            final long start = System.nanoTime();
+            verified += measure(codec, item, ITERATIONS);
+            final long meanNanos = (System.nanoTime() - start) / ITERATIONS;
+
+            results.put(entry.getKey(), meanNanos);
+            plugin.getLogger().info(String.format("%s: %d ns per tag + verify (%d verified)", entry.getKey(), meanNanos, verified));
+        }
+
+        return results;
+    }
+
+    private static int measure(final ItemTagCodec codec, final ItemStack item, final int iterations) {
+        int verified = 0;
+
+        for (int i = 0; i < iterations; ++i) {
+            final ItemStack tagged = codec.write(item, INVENTORY, 3);
+
+            if (INVENTORY.equals(codec.readInventory(tagged)) && codec.readIndex(tagged) == 3)
+                ++verified;
+        }
+
+        return verified;
+    }
+}
@@ -0,0 +1,51 @@
+package club.hellin.util.basicinventories;
+
+import be.seeseemelk.mockbukkit.MockBukkit;
+import club.hellin.util.basicinventories.type.VerifyInventory;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AbstractInventory.tag and verify with the codec init picks on the mocked server
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TagVerifyBenchmark {
+    private VerifyInventory inventory;
+    private ItemStack item;
+    private ItemStack tagged;
+
+    @Setup
+    public void setup() {
+        MockBukkit.mock();
+        InventoryManager.getInstance().init(MockBukkit.createMockPlugin());
+
+        this.inventory = new VerifyInventory();
+        this.item = new ItemStack(Material.DIAMOND);
+        this.tagged = this.inventory.tag(this.item);
+    }
+
+    @TearDown
+    public void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    @Benchmark
+    public ItemStack tag() {
+        return this.inventory.tag(this.item);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return this.inventory.verify(this.tagged);
+    }
+
+    @Benchmark
+    public boolean verifyUntagged() {
+        return this.inventory.verify(this.item);
+    }
+}
@@ -1,7 +1,9 @@
 package club.hellin.util.basicinventories;
 
+import club.hellin.util.basicinventories.scheduler.MenuScheduler;
 import club.hellin.util.basicinventories.utils.ItemStackBuilder;
-import de.tr7zw.changeme.nbtapi.NBTItem;
+import club.hellin.util.basicinventories.utils.ItemTagCodec;
+import club.hellin.util.basicinventories.utils.ItemTemplateCache;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
@@ -10,16 +12,23 @@ import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
 import org.bukkit.enchantments.Enchantment;
+import org.bukkit.entity.HumanEntity;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.InventoryView;
 import org.bukkit.inventory.ItemStack;
 
 import java.lang.annotation.Annotation;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
+/**
+ * Session state is kept in concurrent maps, so lookups, update and updateAll are safe from any thread.
+ * Creating inventories and rendering them must happen on the main thread
+ */
 @Getter
 @Setter(AccessLevel.PROTECTED)
 @ToString
@@ -29,14 +38,38 @@ public abstract class AbstractInventory implements InventoryBase {
     public static final class OpenSession {
         private final UUID uuid;
 
-        private Object attachment;
+        private volatile Object attachment;
+
+        /**
+         * The inventory this session is open in, null until it is added with addOpen
+         */
+        private volatile @Setter(AccessLevel.NONE) AbstractInventory inventory;
+
+        /**
+         * The view this session was opened in, null until the open event for it has been seen
+         */
+        private volatile @Setter(AccessLevel.PACKAGE) InventoryView view;
+
+        /**
+         * When the player last opened or clicked this session, used for idle eviction
+         */
+        private volatile @Setter(AccessLevel.NONE) long lastAccess = System.currentTimeMillis();
 
         public OpenSession(final UUID uuid) {
             this.uuid = uuid;
         }
 
         public <T> void setAttachment(final T attachment) {
+            final Object previous = this.attachment;
             this.attachment = attachment;
+
+            if (this.inventory == null)
+                return;
+
+            final InventoryManager manager = InventoryManager.getInstance();
+            manager.indexAttachment(this, previous);
+
+            manager.updatePathAttachment(this);
         }
 
         public <T> T getAttachment() {
@@ -46,25 +79,71 @@ public abstract class AbstractInventory implements InventoryBase {
         public Player getPlayer() {
             return Bukkit.getPlayer(this.uuid);
         }
+
+        public void touch() {
+            this.lastAccess = System.currentTimeMillis();
+        }
     }
 
-    private static final String NBT_TAG = "basic_inventories_inventory_tag";
     private static final int DEFAULT_SIZE = 9;
 
-    private final Map<UUID, OpenSession> open = new HashMap();
+    private final Map<UUID, OpenSession> open = new ConcurrentHashMap<>();
+    private final @Getter(AccessLevel.NONE) @ToString.Exclude ItemTemplateCache templates = new ItemTemplateCache();
 
     private String title;
     private String rawName;
 
+    private final boolean shared;
+    private volatile @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) @ToString.Exclude Inventory sharedInventory;
+    private volatile @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) boolean sharedRendered;
+
     public AbstractInventory() {
         final InventoryProperties properties = this.getProperties();
 
+        this.shared = properties.shared();
         this.setTitle(properties.title());
     }
 
     protected void setTitle(final String title) {
         this.title = ChatColor.translateAlternateColorCodes('&', title);
-        this.rawName = InventoryManager.getInstance().toEnumName(this.title);
+
+        // Viewers keep the old one, new viewers get one with the new title
+        this.sharedInventory = null;
+
+        this.setRawName(InventoryManager.getInstance().toEnumName(this.title));
+    }
+
+    protected void setRawName(final String rawName) {
+        final InventoryManager manager = InventoryManager.getInstance();
+
+        // The raw name is our hash key, so re-register to keep the manager's indexes valid.
+        // Only when this instance is the registered one, not an equal menu under the same raw name
+        final boolean registered = this.rawName != null && manager.isRegistered(this);
+
+        if (registered)
+            manager.remove(this);
+
+        this.rawName = rawName;
+
+        // Templates are tagged with the raw name
+        this.invalidateTemplates();
+
+        if (registered)
+            manager.register(this);
+    }
+
+    void invalidateTemplates() {
+        this.templates.invalidate();
+    }
+
+    /**
+     * Returns a cached item built once by the factory, the result is shared and must not be modified
+     * @param key
+     * @param factory
+     * @return
+     */
+    protected ItemStack getTemplate(final String key, final Supplier<ItemStack> factory) {
+        return this.templates.get(key, factory);
     }
 
     public InventoryProperties getProperties() {
@@ -85,9 +164,17 @@ public abstract class AbstractInventory implements InventoryBase {
 
     @Override
     public boolean isInventory(final InventoryView view) {
+        if (view == null)
+            return false;
+
+        final BasicInventoryHolder holder = BasicInventoryHolder.of(view);
+
+        if (holder != null)
+            return holder.getOwner() == this;
+
         final String name = InventoryManager.getInstance().getInventoryName(view);
 
-        if (view == null || name == null)
+        if (name == null)
             return false;
 
         if (this.open.containsKey(view.getPlayer().getUniqueId()))
@@ -97,57 +184,73 @@ public abstract class AbstractInventory implements InventoryBase {
     }
 
     @Override
-    public boolean verify(ItemStack item) {
-        item = item.clone();
-        item.setAmount(Math.max(item.getAmount(), 1));
-
-        final NBTItem nbtItem = new NBTItem(item);
-
-        if (!nbtItem.hasTag(NBT_TAG))
-            return false;
-
-        final String tag = nbtItem.getString(NBT_TAG);
-        return tag.equals(this.getRawName());
+    public boolean verify(final ItemStack item) {
+        final String tag = InventoryManager.getInstance().getTagCodec().readInventory(item);
+        return this.getRawName().equals(tag);
     }
 
     @Override
-    public ItemStack tag(ItemStack item) {
+    public ItemStack tag(final ItemStack item) {
+        return this.tag(item, ItemTagCodec.NO_INDEX);
+    }
+
+    /**
+     * Tags the item with this inventory and an item index in a single pass
+     * @param item
+     * @param index
+     * @return
+     */
+    protected ItemStack tag(final ItemStack item, final int index) {
         if (item.getType() == Material.AIR)
             return item;
 
-        item = item.clone();
-
-        if (item.getAmount() <= 0)
-            item.setAmount(1);
-
-        final NBTItem nbtItem = new NBTItem(item);
-        nbtItem.setString(NBT_TAG, this.getRawName());
-        return nbtItem.getItem();
+        return InventoryManager.getInstance().getTagCodec().write(item, this.getRawName(), index);
     }
 
     @Override
     public void close(final Player player) {
-        final UUID uuid = player.getUniqueId();
-        this.open.remove(uuid);
+        this.close(player.getUniqueId());
+    }
+
+    /**
+     * Drops all state kept for this player, also used when the player is no longer online.
+     * Subclasses keeping per player state should clear it here
+     * @param uuid
+     */
+    public void close(final UUID uuid) {
+        final OpenSession session = this.open.remove(uuid);
+
+        if (session == null)
+            return;
+
+        final InventoryManager manager = InventoryManager.getInstance();
+        manager.unindexAttachment(session);
+        manager.removeActiveSession(session);
     }
 
     @Override
     public void back(final Player player) {
-        final InventoryView view = player.getOpenInventory();
         final UUID uuid = player.getUniqueId();
+        final InventoryManager manager = InventoryManager.getInstance();
 
-        final InventoryManager.InventoryPath path = InventoryManager.getInstance().getInventoryPathMap().get(uuid);
+        final InventoryManager.InventoryPath path = manager.getInventoryPathMap().get(uuid);
 
         if (path == null)
             return;
 
+        final OpenSession currentSession = manager.getSession(player);
+
+        if (currentSession == null)
+            return;
+
         final AbstractInventory lastInventory = path.previous();
-        final AbstractInventory currentInventory = InventoryManager.getInstance().getInventory(view);
 
-        if (lastInventory == null || currentInventory == null)
+        if (lastInventory == null)
             return;
 
-        final Object attachment = currentInventory.getAttachment(player);
+        // The snapshot taken when it was opened, or the current one when paths keep no attachments
+        final Object snapshot = path.getAttachment();
+        final Object attachment = snapshot != null ? snapshot : currentSession.getAttachment();
 
         player.closeInventory();
 
@@ -156,24 +259,151 @@ public abstract class AbstractInventory implements InventoryBase {
     }
 
     public ItemStack getBackButton() {
-        ItemStack item = new ItemStackBuilder(Material.MAGENTA_GLAZED_TERRACOTTA)
-                .addEnchant(Enchantment.KNOCKBACK)
-                .hideEnchants()
-                .setDisplayName("&bGo Back")
-                .build();
+        return this.getBackButtonTemplate().clone();
+    }
 
-        item = this.tag(item);
+    /**
+     * Shared instance of the back button, must not be modified
+     * @return
+     */
+    protected ItemStack getBackButtonTemplate() {
+        return this.getTemplate("back_button", () -> {
+            ItemStack item = ItemStackBuilder.deferred(Material.MAGENTA_GLAZED_TERRACOTTA)
+                    .addEnchant(Enchantment.KNOCKBACK)
+                    .hideEnchants()
+                    .setDisplayName("&bGo Back")
+                    .build();
 
-        return item;
+            item = this.tag(item);
+
+            return item;
+        });
+    }
+
+    /**
+     * Creates the Bukkit inventory backing this menu with a {@link BasicInventoryHolder} pointing back to it
+     * @param player
+     * @param size
+     * @param title
+     * @return
+     */
+    protected Inventory createBukkitInventory(final Player player, final int size, final String title) {
+        if (this.isShared() && this.sharedInventory != null)
+            return this.sharedInventory;
+
+        // A shared inventory has no single session, sessions are still tracked per player in open
+        final OpenSession session = this.isShared() ? null : this.open.get(player.getUniqueId());
+        final BasicInventoryHolder holder = new BasicInventoryHolder(this, session);
+
+        final Inventory inventory = Bukkit.createInventory(holder, size, title);
+        holder.setInventory(inventory);
+
+        if (this.isShared()) {
+            this.sharedInventory = inventory;
+            this.sharedRendered = false;
+        }
+
+        return inventory;
+    }
+
+    /**
+     * Calls setItems, unless this is the shared inventory and it has already been rendered
+     * @param player
+     * @param inventory
+     */
+    protected void render(final Player player, final Inventory inventory) {
+        final boolean isSharedInventory = this.isShared() && inventory == this.sharedInventory;
+
+        if (isSharedInventory && this.sharedRendered)
+            return;
+
+        this.renderItems(player, inventory);
+
+        if (isSharedInventory)
+            this.sharedRendered = true;
+    }
+
+    /**
+     * Calls setItems and records how long it took
+     * @param player
+     * @param inventory
+     */
+    protected void renderItems(final Player player, final Inventory inventory) {
+        final long start = this.startTimer();
+        this.setItems(player, inventory);
+        this.stopTimer(InventoryMetrics.Type.RENDER, start);
+    }
+
+    /**
+     * Starts timing a call for {@link InventoryMetrics}, pass the result to stopTimer
+     * @return
+     */
+    protected long startTimer() {
+        return InventoryManager.getInstance().getMetrics().start();
+    }
+
+    protected void stopTimer(final InventoryMetrics.Type type, final long start) {
+        InventoryManager.getInstance().getMetrics().record(this.getRawName(), type, start);
+    }
+
+    /**
+     * Writes only the slots whose item differs from what the inventory already shows, so unchanged slots send no updates.
+     * Templates and cached renders written last time are recognised by identity, other items are compared with isSimilar
+     * @param inventory
+     * @param items The wanted contents, null for empty slots
+     */
+    protected void applyItems(final Inventory inventory, final ItemStack[] items) {
+        final BasicInventoryHolder holder = BasicInventoryHolder.of(inventory);
+        final ItemStack[] written = holder == null ? null : holder.getItems();
+        final int size = inventory.getSize();
+
+        for (int slot = 0; slot < size; ++slot) {
+            final ItemStack wanted = slot < items.length ? items[slot] : null;
+
+            if (wanted != null && written != null && slot < written.length && written[slot] == wanted)
+                continue;
+
+            // Only read when needed, every read copies the slot's item
+            final ItemStack existing = inventory.getItem(slot);
+
+            if (this.isEmpty(wanted) && this.isEmpty(existing))
+                continue;
+
+            if (wanted != null && existing != null && wanted.getAmount() == existing.getAmount() && wanted.isSimilar(existing))
+                continue;
+
+            inventory.setItem(slot, wanted);
+        }
+
+        if (holder != null)
+            holder.setItems(items.clone());
+    }
+
+    private boolean isEmpty(final ItemStack item) {
+        return item == null || item.getType() == Material.AIR;
     }
 
     public void addOpen(final Player player) {
         this.addOpen(player, null);
     }
 
-    protected void addOpen(final Player player, final OpenSession session) {
+    protected void addOpen(final Player player, OpenSession session) {
         final UUID uuid = player.getUniqueId();
-        this.open.put(uuid, session == null ? new OpenSession(uuid) : session);
+
+        if (session == null)
+            session = new OpenSession(uuid);
+
+        session.inventory = this;
+
+        final OpenSession previous = this.open.put(uuid, session);
+        final InventoryManager manager = InventoryManager.getInstance();
+
+        if (previous != null && previous != session)
+            manager.unindexAttachment(previous);
+
+        manager.indexAttachment(session, null);
+        manager.setActiveSession(session);
+        manager.recordPath(session);
     }
 
     public boolean isOpen(final Player player) {
@@ -201,20 +431,63 @@ public abstract class AbstractInventory implements InventoryBase {
         return session.getAttachment();
     }
 
+    /**
+     * Renders every open session again on a coming tick, see {@link RefreshScheduler}
+     */
     public void updateAll() {
-        for (final UUID uuid : this.open.keySet()) {
-            final Player player = Bukkit.getPlayer(uuid);
+        final RefreshScheduler scheduler = InventoryManager.getInstance().getRefreshScheduler();
+
+        if (this.isShared()) {
+            final MenuScheduler menuScheduler = InventoryManager.getInstance().getScheduler();
 
-            if (player == null || !player.isOnline())
+            // The viewers of the shared inventory are Bukkit state, so they are only read on the global thread
+            if (menuScheduler == null)
+                this.updateShared(scheduler);
+            else
+                menuScheduler.run(() -> this.updateShared(scheduler));
+
+            return;
+        }
+
+        for (final OpenSession session : this.open.values())
+            scheduler.markDirty(session);
+    }
+
+    /**
+     * Renders the shared inventory once, through any one of its viewers. Runs on the global thread
+     * @param scheduler
+     */
+    private void updateShared(final RefreshScheduler scheduler) {
+        if (this.sharedInventory == null)
+            return;
+
+        for (final HumanEntity viewer : this.sharedInventory.getViewers()) {
+            final OpenSession session = this.open.get(viewer.getUniqueId());
+
+            if (session == null)
                 continue;
 
-            final InventoryView view = player.getOpenInventory();
+            scheduler.markDirty(session);
+            return;
+        }
+
+        // Nobody is looking, render it again when it is next opened
+        this.sharedRendered = false;
+    }
 
-            if (view != null && this.isInventory(view) && view.getTopInventory() != null) {
-                final Inventory top = view.getTopInventory();
-                Bukkit.getScheduler().runTask(InventoryManager.getInstance().getPlugin(), () -> this.setItems(player, top));
-            }
+    public void update(final Player player) {
+        if (this.isShared()) {
+            this.updateAll();
+            return;
         }
+
+        final UUID uuid = player.getUniqueId();
+        final OpenSession session = this.open.get(uuid);
+
+        if (session == null)
+            return;
+
+        InventoryManager.getInstance().getRefreshScheduler().markDirty(session);
     }
 
     @Override
@@ -225,4 +498,9 @@ public abstract class AbstractInventory implements InventoryBase {
         final AbstractInventory inventory = (AbstractInventory) object;
         return this.getRawName().equals(inventory.getRawName());
     }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(this.getRawName());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package club.hellin.util.basicinventories;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.InventoryView;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Attached to every Bukkit inventory created by this library so the owning
+ * {@link AbstractInventory} and {@link AbstractInventory.OpenSession} can be resolved with a single field read
+ */
+@Getter
+public final class BasicInventoryHolder implements InventoryHolder {
+    private final AbstractInventory owner;
+    private final AbstractInventory.OpenSession session;
+
+    private volatile Inventory inventory;
+
+    /**
+     * What was rendered in each slot during the last render, indexed by raw slot
+     */
+    private volatile Object[] slots;
+
+    /**
+     * The items written during the last render, compared by identity to skip slots that still show them
+     */
+    private volatile @Getter(AccessLevel.NONE) ItemStack[] items;
+
+    BasicInventoryHolder(final AbstractInventory owner, final AbstractInventory.OpenSession session) {
+        this.owner = owner;
+        this.session = session;
+    }
+
+    void setInventory(final Inventory inventory) {
+        this.inventory = inventory;
+    }
+
+    public void setSlots(final Object[] slots) {
+        this.slots = slots;
+    }
+
+    ItemStack[] getItems() {
+        return this.items;
+    }
+
+    void setItems(final ItemStack[] items) {
+        this.items = items;
+    }
+
+    public <S> S getSlot(final int slot) {
+        final Object[] slots = this.slots;
+
+        if (slots == null || slot < 0 || slot >= slots.length)
+            return null;
+
+        return (S) slots[slot];
+    }
+
+    public static BasicInventoryHolder of(final Inventory inventory) {
+        if (inventory == null)
+            return null;
+
+        final InventoryHolder holder = inventory.getHolder();
+
+        if (!(holder instanceof BasicInventoryHolder))
+            return null;
+
+        return (BasicInventoryHolder) holder;
+    }
+
+    public static BasicInventoryHolder of(final InventoryView view) {
+        if (view == null)
+            return null;
+
+        return of(view.getTopInventory());
+    }
+}
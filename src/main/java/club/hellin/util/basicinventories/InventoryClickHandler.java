@@ -0,0 +1,8 @@
+package club.hellin.util.basicinventories;
+
+import club.hellin.util.basicinventories.objects.InventoryClick;
+
+@FunctionalInterface
+public interface InventoryClickHandler {
+    void handle(final InventoryClick click) throws Throwable;
+}
@@ -1,11 +1,18 @@
 package club.hellin.util.basicinventories;
 
 import club.hellin.util.basicinventories.objects.Confirmation;
+import club.hellin.util.basicinventories.scheduler.BukkitMenuScheduler;
+import club.hellin.util.basicinventories.scheduler.MenuScheduler;
 import club.hellin.util.basicinventories.type.VerifyInventory;
 import club.hellin.util.basicinventories.utils.ComponentManager;
+import club.hellin.util.basicinventories.utils.ItemTagCodec;
+import club.hellin.util.basicinventories.utils.NbtItemTagCodec;
+import club.hellin.util.basicinventories.utils.PdcItemTagCodec;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
+import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
@@ -14,119 +21,263 @@ import org.bukkit.plugin.Plugin;
 
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
+/**
+ * Indexes are concurrent, lookups and updateAllFor are safe from any thread.
+ * Opening inventories and verify must be called on the main thread
+ */
 @Getter
 public final class InventoryManager extends ComponentManager<AbstractInventory> {
+    /**
+     * Navigation history of one player, a ring buffer of inventory raw names holding at most capacity entries.
+     * Adding an inventory after going back drops the forward history, once full the oldest entry is dropped
+     */
     @Getter
     @ToString
     public static final class InventoryPath {
         private final UUID uuid;
-        private final List<AbstractInventory> path = new ArrayList<>();
+        private final @Getter(AccessLevel.NONE) String[] ids;
+        private final @Getter(AccessLevel.NONE) @ToString.Exclude Object[] attachments;
 
-        private int pointer = 0;
+        private @Getter(AccessLevel.NONE) int head = 0;
+        private int size = 0;
 
+        /**
+         * Index of the current entry counted from the oldest, -1 while empty
+         */
+        private int pointer = -1;
+
+        /**
+         * Holds at most the path depth configured on the InventoryManager
+         * @param uuid
+         */
         public InventoryPath(final UUID uuid) {
+            this(uuid, InventoryManager.getInstance().getPathDepth());
+        }
+
+        public InventoryPath(final UUID uuid, final int capacity) {
+            if (capacity < 1)
+                throw new IllegalArgumentException("Capacity must be at least 1");
+
             this.uuid = uuid;
+            this.ids = new String[capacity];
+            this.attachments = new Object[capacity];
+        }
+
+        public int getCapacity() {
+            return this.ids.length;
+        }
+
+        public synchronized void addInventory(final AbstractInventory inventory) {
+            this.addInventory(inventory, null);
+        }
+
+        /**
+         * Makes this inventory the current entry, when it already is only its attachment is replaced
+         * @param inventory
+         * @param attachment Snapshot restored when navigating back to this entry, may be null
+         */
+        public synchronized void addInventory(final AbstractInventory inventory, final Object attachment) {
+            final String id = inventory.getRawName();
+
+            if (this.pointer >= 0 && id.equals(this.ids[this.index(this.pointer)])) {
+                this.attachments[this.index(this.pointer)] = attachment;
+                return;
+            }
+
+            // Branching off, the forward history no longer applies
+            this.truncate(this.pointer + 1);
+
+            if (this.size == this.ids.length) {
+                this.ids[this.head] = null;
+                this.attachments[this.head] = null;
+                this.head = (this.head + 1) % this.ids.length;
+                --this.size;
+            }
+
+            final int index = this.index(this.size);
+            this.ids[index] = id;
+            this.attachments[index] = attachment;
+
+            ++this.size;
+            this.pointer = this.size - 1;
         }
 
-        public void addInventory(final AbstractInventory inventory) {
-            if (this.get() != null && this.get().equals(inventory))
+        /**
+         * Replaces the attachment snapshot of the current entry, if it is this inventory
+         * @param inventory
+         * @param attachment
+         */
+        public synchronized void setAttachment(final AbstractInventory inventory, final Object attachment) {
+            if (this.pointer < 0 || !inventory.getRawName().equals(this.ids[this.index(this.pointer)]))
                 return;
 
-            this.path.add(inventory);
-            ++pointer;
+            this.attachments[this.index(this.pointer)] = attachment;
+        }
+
+        public synchronized void clear() {
+            this.truncate(0);
+            this.head = 0;
         }
 
         /**
          * Read only
          * @return
          */
-        public AbstractInventory get() {
+        public synchronized AbstractInventory get() {
+            return this.resolve(this.pointer);
+        }
+
+        /**
+         * The attachment snapshot of the current entry
+         * @return
+         */
+        public synchronized <T> T getAttachment() {
             if (!this.validate(this.pointer))
                 return null;
 
-            final AbstractInventory inventory = this.path.get(this.pointer);
-            return inventory;
+            return (T) this.attachments[this.index(this.pointer)];
         }
 
         /**
-         * Adjusts the pointer
+         * Adjusts the pointer, unless there is no next entry
          * @return
          */
-        public AbstractInventory next() {
-            final int next = ++this.pointer;
-
-            if (!this.validate(next))
+        public synchronized AbstractInventory next() {
+            if (!this.validate(this.pointer + 1))
                 return null;
 
-            final AbstractInventory inventory = this.path.get(next);
-            return inventory;
+            return this.resolve(++this.pointer);
         }
 
         /**
-         * Adjusts the pointer
+         * Adjusts the pointer, unless there is no previous entry
          * @return
          */
-        public AbstractInventory previous() {
-            final int previous = --this.pointer;
-
-            if (!this.validate(previous))
+        public synchronized AbstractInventory previous() {
+            if (!this.validate(this.pointer - 1))
                 return null;
 
-            final AbstractInventory inventory = this.path.get(previous);
-            return inventory;
+            return this.resolve(--this.pointer);
         }
 
         /**
          * Read only
          * @return
          */
-        public AbstractInventory getNext() {
-            final int next = this.pointer + 1;
-
-            if (!this.validate(next))
-                return null;
-
-            final AbstractInventory inventory = this.path.get(next);
-            return inventory;
+        public synchronized AbstractInventory getNext() {
+            return this.resolve(this.pointer + 1);
         }
 
         /**
          * Read only
          * @return
          */
-        public AbstractInventory getPrevious() {
-            final int previous = this.pointer - 1;
+        public synchronized AbstractInventory getPrevious() {
+            return this.resolve(this.pointer - 1);
+        }
 
-            if (!this.validate(previous))
+        private AbstractInventory resolve(final int pointer) {
+            if (!this.validate(pointer))
                 return null;
 
-            final AbstractInventory inventory = this.path.get(previous);
-            return inventory;
+            return InventoryManager.getInstance().getInventory(this.ids[this.index(pointer)]);
+        }
+
+        private void truncate(final int size) {
+            for (int i = size; i < this.size; ++i) {
+                final int index = this.index(i);
+                this.ids[index] = null;
+                this.attachments[index] = null;
+            }
+
+            this.size = size;
+            this.pointer = Math.min(this.pointer, size - 1);
+        }
+
+        private int index(final int pointer) {
+            return (this.head + pointer) % this.ids.length;
         }
 
-        private boolean validate(final int index) {
-            return index >= 0 && index < this.path.size();
+        private boolean validate(final int pointer) {
+            return pointer >= 0 && pointer < this.size;
         }
     }
 
-    private static InventoryManager singletonInstance;
+    private static final InventoryManager singletonInstance = new InventoryManager();
 
-    private final Map<UUID, InventoryPath> inventoryPathMap = new HashMap<>();
+    private final Map<UUID, InventoryPath> inventoryPathMap = new ConcurrentHashMap<>();
+    private final @Getter(AccessLevel.NONE) Map<String, AbstractInventory> nameMap = new ConcurrentHashMap<>();
+    private final @Getter(AccessLevel.NONE) Map<Object, Set<AbstractInventory.OpenSession>> attachmentMap = new ConcurrentHashMap<>();
+    private final @Getter(AccessLevel.NONE) Map<UUID, AbstractInventory.OpenSession> sessionMap = new ConcurrentHashMap<>();
 
-    private @Setter Plugin plugin;
+    private volatile @Setter Plugin plugin;
+    private volatile ItemTagCodec tagCodec = new NbtItemTagCodec();
+    private volatile @Setter MenuScheduler scheduler;
+    private final RefreshScheduler refreshScheduler = new RefreshScheduler();
 
-    public static InventoryManager getInstance() {
-        if (!(singletonInstance instanceof InventoryManager))
-            singletonInstance = new InventoryManager();
+    /**
+     * Capacity of paths created from now on
+     */
+    private volatile @Setter int pathDepth = 16;
 
+    /**
+     * Whether paths keep the attachment each menu was opened with, to restore it when going back.
+     * Off by default, back then passes on the attachment of the menu being left
+     */
+    private volatile @Setter boolean pathAttachments = false;
+
+    /**
+     * Whether opening a MainMenu clears the player's path, off by default so going back past a main menu keeps working
+     */
+    private volatile @Setter boolean clearPathOnMainMenu = false;
+    private final SessionLifecycleManager lifecycleManager = new SessionLifecycleManager();
+    private final InventoryMetrics metrics = new InventoryMetrics();
+
+    public static InventoryManager getInstance() {
         return singletonInstance;
     }
 
+    /**
+     * Should be called before any inventory is constructed, as items tagged before the codec is picked keep the old format.
+     * Also registers the {@link SessionLifecycleManager} that cleans up sessions
+     * @param plugin
+     */
     @Override
     public void init(final Plugin plugin) {
         getInstance().setPlugin(plugin);
+
+        if (getInstance().getScheduler() == null)
+            getInstance().setScheduler(new BukkitMenuScheduler(plugin));
+
+        getInstance().setTagCodec(PdcItemTagCodec.isSupported() ? new PdcItemTagCodec(plugin) : new NbtItemTagCodec());
+
+        Bukkit.getPluginManager().registerEvents(getInstance().getLifecycleManager(), plugin);
+        getInstance().getLifecycleManager().start();
+
+        // Menus updated before init are queued without a task to render them
+        getInstance().getRefreshScheduler().start();
+    }
+
+    public void setTagCodec(final ItemTagCodec tagCodec) {
+        this.tagCodec = tagCodec;
+
+        for (final AbstractInventory inventory : super.getComponents())
+            inventory.invalidateTemplates();
+    }
+
+    @Override
+    public synchronized void register(final AbstractInventory inventory) {
+        super.register(inventory);
+        this.nameMap.putIfAbsent(inventory.getRawName(), inventory);
+    }
+
+    @Override
+    public synchronized void remove(final AbstractInventory inventory) {
+        super.remove(inventory);
+        this.nameMap.remove(inventory.getRawName(), inventory);
     }
 
     public String toEnumName(String name) {
@@ -168,9 +319,15 @@ public final class InventoryManager extends ComponentManager<AbstractInventory>
     }
 
     public AbstractInventory getInventory(final InventoryView view) {
+        final BasicInventoryHolder holder = BasicInventoryHolder.of(view);
+
+        if (holder != null)
+            return holder.getOwner();
+
+        // Fallback for views not created by this library
         AbstractInventory found = null;
 
-        for (final AbstractInventory inventory : super.get()) {
+        for (final AbstractInventory inventory : super.getComponents()) {
             if (!inventory.isInventory(view))
                 continue;
 
@@ -181,65 +338,194 @@ public final class InventoryManager extends ComponentManager<AbstractInventory>
         return found;
     }
 
-    public AbstractInventory getInventory(String name) {
-        AbstractInventory found = null;
-        name = this.toEnumName(name);
+    public AbstractInventory getInventory(final String name) {
+        final AbstractInventory inventory = this.nameMap.get(name);
 
-        for (final AbstractInventory inventory : super.get()) {
-            if (!inventory.getRawName().equals(name))
-                continue;
+        if (inventory != null)
+            return inventory;
 
-            found = inventory;
-            break;
-        }
+        return this.nameMap.get(this.toEnumName(name));
+    }
 
-        return found;
+    public <T extends AbstractInventory> T getInventory(final Class<T> clazz) {
+        return super.get(clazz);
     }
 
-    public <T> List<AbstractInventory> getInventories(final T attachment) {
-        final List<AbstractInventory> inventories = new ArrayList<>();
+    public InventoryPath getPath(final UUID uuid) {
+        return this.inventoryPathMap.computeIfAbsent(uuid, key -> new InventoryPath(key, this.pathDepth));
+    }
 
-        for (final AbstractInventory inventory : super.get()) {
-            for (final AbstractInventory.OpenSession session : inventory.getOpen().values()) {
-                if (session == null)
-                    continue;
+    /**
+     * Makes the session's inventory the current entry of its player's path, starting over for main menus when clearPathOnMainMenu is set
+     * @param session
+     */
+    void recordPath(final AbstractInventory.OpenSession session) {
+        final AbstractInventory inventory = session.getInventory();
+        final InventoryPath path = this.getPath(session.getUuid());
 
-                final Player player = session.getPlayer();
+        if (this.clearPathOnMainMenu && inventory.isMainMenu() && !inventory.equals(path.get()))
+            path.clear();
 
-                if (player == null || !player.isOnline())
-                    continue;
+        path.addInventory(inventory, this.pathAttachments ? session.getAttachment() : null);
+    }
 
-                if (!attachment.equals(inventory.getAttachment(player)))
-                    continue;
+    void updatePathAttachment(final AbstractInventory.OpenSession session) {
+        final InventoryPath path = this.inventoryPathMap.get(session.getUuid());
 
-                inventories.add(inventory);
-            }
+        if (path == null || !this.pathAttachments)
+            return;
+
+        path.setAttachment(session.getInventory(), session.getAttachment());
+    }
+
+    void setActiveSession(final AbstractInventory.OpenSession session) {
+        this.sessionMap.put(session.getUuid(), session);
+    }
+
+    void removeActiveSession(final AbstractInventory.OpenSession session) {
+        // A newer session may already have replaced this one
+        this.sessionMap.remove(session.getUuid(), session);
+    }
+
+    /**
+     * Returns the session of the inventory this player most recently opened, across all inventories
+     * @param uuid
+     * @return
+     */
+    public AbstractInventory.OpenSession getSession(final UUID uuid) {
+        return this.sessionMap.get(uuid);
+    }
+
+    /**
+     * @return How many players currently have an active session
+     */
+    public int getActiveSessionCount() {
+        return this.sessionMap.size();
+    }
+
+    public AbstractInventory.OpenSession getSession(final Player player) {
+        return this.getSession(player.getUniqueId());
+    }
+
+    public AbstractInventory getOpenInventory(final Player player) {
+        final AbstractInventory.OpenSession session = this.getSession(player);
+
+        if (session == null)
+            return null;
+
+        return session.getInventory();
+    }
+
+    /**
+     * Attachments are used as hash keys, so their hashCode must not change while they are attached
+     * @param session
+     * @param previous The attachment the session had before, if any
+     */
+    void indexAttachment(final AbstractInventory.OpenSession session, final Object previous) {
+        if (previous != null)
+            this.unindexAttachment(session, previous);
+
+        final Object attachment = session.getAttachment();
+
+        if (attachment == null)
+            return;
+
+        this.attachmentMap.compute(attachment, (key, sessions) -> {
+            if (sessions == null)
+                sessions = ConcurrentHashMap.newKeySet();
+
+            sessions.add(session);
+            return sessions;
+        });
+    }
+
+    void unindexAttachment(final AbstractInventory.OpenSession session) {
+        final Object attachment = session.getAttachment();
+
+        if (attachment == null)
+            return;
+
+        this.unindexAttachment(session, attachment);
+    }
+
+    private void unindexAttachment(final AbstractInventory.OpenSession session, final Object attachment) {
+        // Atomic so a concurrent add can not land in a set that is being dropped
+        this.attachmentMap.computeIfPresent(attachment, (key, sessions) -> {
+            sessions.remove(session);
+            return sessions.isEmpty() ? null : sessions;
+        });
+    }
+
+    /**
+     * @return How many distinct attachments open sessions currently have
+     */
+    public int getAttachmentCount() {
+        return this.attachmentMap.size();
+    }
+
+    /**
+     * Returns the open sessions that currently have this attachment
+     * @param attachment
+     * @return
+     */
+    public <T> List<AbstractInventory.OpenSession> getSessions(final T attachment) {
+        if (attachment == null)
+            return new ArrayList<>();
+
+        final Set<AbstractInventory.OpenSession> sessions = this.attachmentMap.get(attachment);
+
+        if (sessions == null)
+            return new ArrayList<>();
+
+        return new ArrayList<>(sessions);
+    }
+
+    public <T> List<AbstractInventory> getInventories(final T attachment) {
+        final List<AbstractInventory> inventories = new ArrayList<>();
+
+        for (final AbstractInventory.OpenSession session : this.getSessions(attachment)) {
+            final Player player = session.getPlayer();
+
+            if (player == null || !player.isOnline())
+                continue;
+
+            inventories.add(session.getInventory());
         }
 
         return inventories;
     }
 
+    /**
+     * Refreshes only the players viewing an inventory with this attachment
+     * @param attachment
+     */
+    public <T> void updateAllFor(final T attachment) {
+        for (final AbstractInventory.OpenSession session : this.getSessions(attachment)) {
+            final Player player = session.getPlayer();
+
+            if (player == null)
+                continue;
+
+            session.getInventory().update(player);
+        }
+    }
+
     public void verify(final Player player, final Consumer<Confirmation> callback) {
         this.verify(player, callback, null);
     }
 
     public void verify(final Player player, final Consumer<Confirmation> callback, final String title) {
         final UUID uuid = player.getUniqueId();
-        final InventoryView view = player.getOpenInventory();
-
-        Object attachment = null;
-
-        if (view != null) {
-            final AbstractInventory inventory = InventoryManager.getInstance().getInventory(view);
-
-            if (inventory != null && inventory.getAttachment(player) != null)
-                attachment = inventory.getAttachment(player);
-        }
+        final AbstractInventory.OpenSession session = this.getSession(uuid);
+        final Object attachment = session == null ? null : session.getAttachment();
 
-        final VerifyInventory verifyInventory = (VerifyInventory) this.getInventory("VERIFY");
+        final VerifyInventory verifyInventory = this.getInventory(VerifyInventory.class);
 
         player.closeInventory();
-        verifyInventory.getCallbackMap().put(uuid, callback);
+        if (callback != null)
+            verifyInventory.getCallbackMap().put(uuid, callback);
+        else
+            verifyInventory.getCallbackMap().remove(uuid);
 
         final Inventory inventory = verifyInventory.createInventory(player, title, attachment);
         player.openInventory(inventory);
@@ -0,0 +1,215 @@
+package club.hellin.util.basicinventories;
+
+import club.hellin.util.basicinventories.scheduler.MenuScheduler;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Counters and latency histograms per inventory raw name, recording is lock free so it can stay enabled in production.
+ * Latencies are kept in power of two buckets, percentiles are the upper bound of their bucket
+ */
+@Getter
+@Setter
+public final class InventoryMetrics {
+    public enum Type {
+        OPEN,
+        RENDER,
+        CLICK,
+        PROVIDE,
+        ITEM_PROVIDE
+    }
+
+    private static final long DISABLED = Long.MIN_VALUE;
+    private static final int BUCKETS = 64;
+
+    private static final class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        private void record(final long nanos) {
+            this.count.increment();
+            this.totalNanos.add(nanos);
+            this.maxNanos.accumulate(nanos);
+            this.buckets.incrementAndGet(nanos <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos));
+        }
+
+        private TimerSnapshot snapshot() {
+            final long[] buckets = new long[BUCKETS];
+
+            for (int i = 0; i < BUCKETS; ++i)
+                buckets[i] = this.buckets.get(i);
+
+            return new TimerSnapshot(this.count.sum(), this.totalNanos.sum(), this.maxNanos.get(), buckets);
+        }
+    }
+
+    private static final class Stats {
+        private final Timer[] timers = new Timer[Type.values().length];
+        private final LongAdder cacheHits = new LongAdder();
+        private final LongAdder cacheMisses = new LongAdder();
+
+        private Stats() {
+            for (int i = 0; i < this.timers.length; ++i)
+                this.timers[i] = new Timer();
+        }
+    }
+
+    @Getter
+    @ToString(exclude = "buckets")
+    @AllArgsConstructor
+    public static final class TimerSnapshot {
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        /**
+         * Bucket i counts the calls that took between 2^i and 2^(i + 1) nanoseconds
+         */
+        private final long[] buckets;
+
+        public long getMeanNanos() {
+            return this.count == 0 ? 0 : this.totalNanos / this.count;
+        }
+
+        /**
+         * @param percentile Between 0 and 1
+         * @return The upper bound of the bucket the percentile falls in
+         */
+        public long getPercentileNanos(final double percentile) {
+            final long target = (long) Math.ceil(this.count * percentile);
+            long seen = 0;
+
+            for (int i = 0; i < this.buckets.length; ++i) {
+                seen += this.buckets[i];
+
+                if (seen >= target && seen > 0)
+                    return Math.min(1L << Math.min(i + 1, 62), this.maxNanos);
+            }
+
+            return this.maxNanos;
+        }
+    }
+
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static final class InventorySnapshot {
+        private final String rawName;
+        private final Map<Type, TimerSnapshot> timers;
+        private final long cacheHits;
+        private final long cacheMisses;
+
+        public TimerSnapshot getTimer(final Type type) {
+            return this.timers.get(type);
+        }
+    }
+
+    private final @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) Map<String, Stats> statsMap = new ConcurrentHashMap<>();
+    private volatile boolean enabled = true;
+
+    private @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) MenuScheduler.Task callbackTask;
+
+    /**
+     * Returns the time to pass to record once the measured call is done
+     * @return
+     */
+    public long start() {
+        return this.enabled ? System.nanoTime() : DISABLED;
+    }
+
+    public void record(final String rawName, final Type type, final long start) {
+        if (start == DISABLED || !this.enabled)
+            return;
+
+        this.getStats(rawName).timers[type.ordinal()].record(System.nanoTime() - start);
+    }
+
+    public void recordCache(final String rawName, final boolean hit) {
+        if (!this.enabled)
+            return;
+
+        final Stats stats = this.getStats(rawName);
+
+        if (hit)
+            stats.cacheHits.increment();
+        else
+            stats.cacheMisses.increment();
+    }
+
+    private Stats getStats(final String rawName) {
+        final Stats stats = this.statsMap.get(rawName);
+
+        if (stats != null)
+            return stats;
+
+        return this.statsMap.computeIfAbsent(rawName, key -> new Stats());
+    }
+
+    public InventorySnapshot snapshot(final String rawName) {
+        final Stats stats = this.statsMap.get(rawName);
+
+        if (stats == null)
+            return null;
+
+        final Map<Type, TimerSnapshot> timers = new EnumMap<>(Type.class);
+
+        for (final Type type : Type.values())
+            timers.put(type, stats.timers[type.ordinal()].snapshot());
+
+        return new InventorySnapshot(rawName, Collections.unmodifiableMap(timers), stats.cacheHits.sum(), stats.cacheMisses.sum());
+    }
+
+    /**
+     * Snapshots of every inventory that recorded anything, by raw name
+     * @return
+     */
+    public Map<String, InventorySnapshot> snapshot() {
+        final Map<String, InventorySnapshot> snapshots = new HashMap<>();
+
+        for (final String rawName : this.statsMap.keySet())
+            snapshots.put(rawName, this.snapshot(rawName));
+
+        return snapshots;
+    }
+
+    public void reset() {
+        this.statsMap.clear();
+    }
+
+    /**
+     * Passes a snapshot to the callback every period on the global thread, replacing any earlier callback
+     * @param callback Null to stop
+     * @param periodTicks
+     */
+    public synchronized void setSnapshotCallback(final Consumer<Map<String, InventorySnapshot>> callback, final long periodTicks) {
+        if (this.callbackTask != null) {
+            this.callbackTask.cancel();
+            this.callbackTask = null;
+        }
+
+        if (callback == null)
+            return;
+
+        final MenuScheduler scheduler = InventoryManager.getInstance().getScheduler();
+
+        if (scheduler == null)
+            throw new IllegalStateException("InventoryManager has not been initialized");
+
+        this.callbackTask = scheduler.runRepeating(() -> callback.accept(this.snapshot()), periodTicks);
+    }
+}
@@ -11,4 +11,9 @@ public @interface InventoryProperties {
     String title();
     boolean updateOnJoin() default false;
     boolean updateOnLeave() default false;
+
+    /**
+     * Render one inventory shared by every viewer, only for menus whose contents do not depend on the player
+     */
+    boolean shared() default false;
 }
\ No newline at end of file
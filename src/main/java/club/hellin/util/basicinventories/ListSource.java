@@ -0,0 +1,32 @@
+package club.hellin.util.basicinventories;
+
+import org.bukkit.entity.Player;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Pageable element source for a ListInventory, only the visible page is fetched and converted
+ * @param <E>
+ */
+public interface ListSource<E> {
+    /**
+     * Called when sizing and paging, should be cheap
+     * @param player
+     * @return Total amount of elements
+     */
+    int count(final Player player);
+
+    List<E> fetch(final Player player, final int offset, final int limit);
+
+    /**
+     * Override to fetch off the main thread
+     * @param player
+     * @param offset
+     * @param limit
+     * @return The elements being fetched, or null to use fetch
+     */
+    default CompletableFuture<List<E>> fetchAsync(final Player player, final int offset, final int limit) {
+        return null;
+    }
+}
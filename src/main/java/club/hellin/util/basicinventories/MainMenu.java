@@ -6,7 +6,7 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 /**
- * Classes annotated with this will make inventory path's get cleared when opened
+ * Classes annotated with this will make inventory path's get cleared when opened, if InventoryManager.clearPathOnMainMenu is enabled
  */
 @Target(ElementType.TYPE)
 @Retention(RetentionPolicy.RUNTIME)
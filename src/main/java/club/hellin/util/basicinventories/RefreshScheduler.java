@@ -0,0 +1,142 @@
+package club.hellin.util.basicinventories;
+
+import club.hellin.util.basicinventories.scheduler.MenuScheduler;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.InventoryView;
+
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects sessions that need to be rendered again and renders each of them once per tick, within a budget.
+ * Sessions that do not fit in a tick's budget are rendered in the next one.
+ * Sessions may be marked from any thread, each render runs on the player's thread through the {@link MenuScheduler}
+ */
+@Getter
+@Setter
+public final class RefreshScheduler {
+    private final @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) Set<AbstractInventory.OpenSession> dirty = ConcurrentHashMap.newKeySet();
+    private final @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) Queue<AbstractInventory.OpenSession> queue = new ConcurrentLinkedQueue<>();
+    private @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) MenuScheduler.Task task;
+
+    private volatile int maxRendersPerTick = 100;
+    private volatile long maxNanosPerTick = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) LongAdder requested = new LongAdder();
+    private final @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) LongAdder coalesced = new LongAdder();
+    private final @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) LongAdder rendered = new LongAdder();
+    private final @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) LongAdder carriedOver = new LongAdder();
+
+    /**
+     * Renders the session on a coming tick, requests for a session that is already waiting are merged
+     * @param session
+     */
+    public void markDirty(final AbstractInventory.OpenSession session) {
+        this.requested.increment();
+
+        if (!this.dirty.add(session)) {
+            this.coalesced.increment();
+            return;
+        }
+
+        this.queue.add(session);
+        this.start();
+    }
+
+    public int getQueueDepth() {
+        return this.dirty.size();
+    }
+
+    public long getRequested() {
+        return this.requested.sum();
+    }
+
+    public long getCoalesced() {
+        return this.coalesced.sum();
+    }
+
+    public long getRendered() {
+        return this.rendered.sum();
+    }
+
+    public long getCarriedOver() {
+        return this.carriedOver.sum();
+    }
+
+    /**
+     * Starts rendering queued sessions, called again by InventoryManager.init for sessions marked before there was a scheduler
+     */
+    synchronized void start() {
+        if (this.task != null || this.queue.isEmpty())
+            return;
+
+        final MenuScheduler scheduler = InventoryManager.getInstance().getScheduler();
+
+        if (scheduler == null)
+            return;
+
+        this.task = scheduler.runRepeating(this::tick, 1L);
+    }
+
+    private void tick() {
+        final MenuScheduler scheduler = InventoryManager.getInstance().getScheduler();
+        final long start = System.nanoTime();
+        int renders = 0;
+
+        while (renders < this.maxRendersPerTick && System.nanoTime() - start < this.maxNanosPerTick) {
+            final AbstractInventory.OpenSession session = this.queue.poll();
+
+            if (session == null)
+                break;
+
+            // Removed before rendering, so a change during the render marks it again
+            this.dirty.remove(session);
+
+            final Player player = session.getPlayer();
+
+            if (player != null)
+                scheduler.run(player, () -> this.render(session, player));
+
+            ++renders;
+        }
+
+        this.rendered.add(renders);
+        this.carriedOver.add(this.queue.size());
+
+        this.stopIfIdle();
+    }
+
+    private synchronized void stopIfIdle() {
+        // Checked under the same lock as start, so a session marked meanwhile restarts the timer
+        if (!this.queue.isEmpty() || this.task == null)
+            return;
+
+        this.task.cancel();
+        this.task = null;
+    }
+
+    private void render(final AbstractInventory.OpenSession session, final Player player) {
+        final AbstractInventory inventory = session.getInventory();
+
+        if (inventory == null || !player.isOnline())
+            return;
+
+        // Closed or replaced since it was marked
+        if (inventory.getOpen().get(session.getUuid()) != session)
+            return;
+
+        final InventoryView view = player.getOpenInventory();
+
+        if (!inventory.isInventory(view) || view.getTopInventory() == null)
+            return;
+
+        inventory.renderItems(player, view.getTopInventory());
+    }
+}
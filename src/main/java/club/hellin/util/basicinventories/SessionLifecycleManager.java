@@ -0,0 +1,196 @@
+package club.hellin.util.basicinventories;
+
+import club.hellin.util.basicinventories.scheduler.MenuScheduler;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.inventory.InventoryOpenEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Makes sure per player state is dropped once it is no longer used.
+ * Sessions are closed when their view closes or the player quits, sessions that were never viewed
+ * or whose close was missed are evicted once they have been idle for longer than the idle ttl
+ */
+@Getter
+@Setter
+public final class SessionLifecycleManager implements Listener {
+    private volatile long idleTtlMillis = TimeUnit.MINUTES.toMillis(10);
+    private volatile long sweepPeriodTicks = 20L * 60L;
+
+    private final LongAdder evicted = new LongAdder();
+    private @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) MenuScheduler.Task task;
+
+    public long getEvicted() {
+        return this.evicted.sum();
+    }
+
+    /**
+     * Sessions still held by inventories, including ones that were never opened in a view
+     * @return
+     */
+    public int getOpenSessionCount() {
+        int count = 0;
+
+        for (final AbstractInventory inventory : InventoryManager.getInstance().getComponents())
+            count += inventory.getOpen().size();
+
+        return count;
+    }
+
+    public int getActiveSessionCount() {
+        return InventoryManager.getInstance().getActiveSessionCount();
+    }
+
+    public int getPathCount() {
+        return InventoryManager.getInstance().getInventoryPathMap().size();
+    }
+
+    /**
+     * Starts the idle sweep, stopped again with stop
+     */
+    public synchronized void start() {
+        if (this.task != null || this.idleTtlMillis <= 0)
+            return;
+
+        final MenuScheduler scheduler = InventoryManager.getInstance().getScheduler();
+
+        if (scheduler == null)
+            return;
+
+        this.task = scheduler.runRepeating(this::sweep, this.sweepPeriodTicks);
+    }
+
+    public synchronized void stop() {
+        if (this.task == null)
+            return;
+
+        this.task.cancel();
+        this.task = null;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onOpen(final InventoryOpenEvent event) {
+        final BasicInventoryHolder holder = BasicInventoryHolder.of(event.getView());
+
+        if (holder == null)
+            return;
+
+        final AbstractInventory.OpenSession session = holder.getOwner().getOpen().get(event.getPlayer().getUniqueId());
+
+        if (session == null)
+            return;
+
+        if (holder.getSession() != null && holder.getSession() != session)
+            return;
+
+        session.setView(event.getView());
+        session.touch();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onClick(final InventoryClickEvent event) {
+        final BasicInventoryHolder holder = BasicInventoryHolder.of(event.getView());
+
+        if (holder == null)
+            return;
+
+        final AbstractInventory.OpenSession session = holder.getOwner().getOpen().get(event.getWhoClicked().getUniqueId());
+
+        if (session != null)
+            session.touch();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onClose(final InventoryCloseEvent event) {
+        final BasicInventoryHolder holder = BasicInventoryHolder.of(event.getView());
+
+        if (holder == null || !(event.getPlayer() instanceof Player))
+            return;
+
+        final Player player = (Player) event.getPlayer();
+        final AbstractInventory inventory = holder.getOwner();
+        final AbstractInventory.OpenSession session = inventory.getOpen().get(player.getUniqueId());
+
+        if (session == null)
+            return;
+
+        // A menu opened from this one adds its session before this view closes, that one must stay
+        if (session.getView() != event.getView() && session != holder.getSession())
+            return;
+
+        inventory.close(player);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(final PlayerQuitEvent event) {
+        final Player player = event.getPlayer();
+        final InventoryManager manager = InventoryManager.getInstance();
+
+        for (final AbstractInventory inventory : manager.getComponents()) {
+            if (inventory.isOpen(player))
+                inventory.close(player);
+        }
+
+        manager.getInventoryPathMap().remove(player.getUniqueId());
+    }
+
+    /**
+     * Evicts idle sessions that are not being viewed and the paths of players who are gone
+     */
+    private void sweep() {
+        final InventoryManager manager = InventoryManager.getInstance();
+        final long cutoff = System.currentTimeMillis() - this.idleTtlMillis;
+
+        for (final AbstractInventory inventory : manager.getComponents()) {
+            for (final AbstractInventory.OpenSession session : inventory.getOpen().values()) {
+                if (session.getLastAccess() > cutoff)
+                    continue;
+
+                final Player player = session.getPlayer();
+
+                if (player == null) {
+                    this.evict(inventory, session.getUuid());
+                    continue;
+                }
+
+                // The player's open view may only be read on their own thread
+                manager.getScheduler().run(player, () -> {
+                    if (session.getLastAccess() > cutoff || this.isViewing(player, inventory))
+                        return;
+
+                    this.evict(inventory, session.getUuid());
+                });
+            }
+        }
+
+        manager.getInventoryPathMap().keySet().removeIf(uuid -> Bukkit.getPlayer(uuid) == null);
+    }
+
+    private boolean isViewing(final Player player, final AbstractInventory inventory) {
+        if (!player.isOnline())
+            return false;
+
+        final BasicInventoryHolder holder = BasicInventoryHolder.of(player.getOpenInventory());
+        return holder != null && holder.getOwner() == inventory;
+    }
+
+    private void evict(final AbstractInventory inventory, final UUID uuid) {
+        if (!inventory.getOpen().containsKey(uuid))
+            return;
+
+        inventory.close(uuid);
+        this.evicted.increment();
+    }
+}
@@ -0,0 +1,36 @@
+package club.hellin.util.basicinventories.scheduler;
+
+import lombok.AllArgsConstructor;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * Runs everything on the main thread, tasks submitted from it run right away
+ */
+@AllArgsConstructor
+public final class BukkitMenuScheduler implements MenuScheduler {
+    private final Plugin plugin;
+
+    @Override
+    public void run(final Player player, final Runnable task) {
+        this.run(task);
+    }
+
+    @Override
+    public void run(final Runnable task) {
+        if (Bukkit.isPrimaryThread()) {
+            task.run();
+            return;
+        }
+
+        Bukkit.getScheduler().runTask(this.plugin, task);
+    }
+
+    @Override
+    public Task runRepeating(final Runnable task, final long periodTicks) {
+        final BukkitTask bukkitTask = Bukkit.getScheduler().runTaskTimer(this.plugin, task, periodTicks, periodTicks);
+        return bukkitTask::cancel;
+    }
+}
@@ -0,0 +1,53 @@
+package club.hellin.util.basicinventories.scheduler;
+
+import org.bukkit.entity.Player;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In process scheduler without a server, each player is pinned to one of a fixed set of threads.
+ * Meant for tests and benchmarks of parallel rendering
+ */
+public final class ExecutorMenuScheduler implements MenuScheduler {
+    private static final long MILLIS_PER_TICK = 50;
+
+    private final ExecutorService[] playerExecutors;
+    private final ScheduledExecutorService globalExecutor = Executors.newSingleThreadScheduledExecutor();
+
+    public ExecutorMenuScheduler(final int threads) {
+        this.playerExecutors = new ExecutorService[threads];
+
+        for (int i = 0; i < threads; ++i)
+            this.playerExecutors[i] = Executors.newSingleThreadExecutor();
+    }
+
+    @Override
+    public void run(final Player player, final Runnable task) {
+        final int index = Math.floorMod(player.getUniqueId().hashCode(), this.playerExecutors.length);
+        this.playerExecutors[index].execute(task);
+    }
+
+    @Override
+    public void run(final Runnable task) {
+        this.globalExecutor.execute(task);
+    }
+
+    @Override
+    public Task runRepeating(final Runnable task, final long periodTicks) {
+        final long period = periodTicks * MILLIS_PER_TICK;
+        final ScheduledFuture<?> future = this.globalExecutor.scheduleAtFixedRate(task, period, period, TimeUnit.MILLISECONDS);
+
+        return () -> future.cancel(false);
+    }
+
+    public void shutdown() {
+        for (final ExecutorService executor : this.playerExecutors)
+            executor.shutdown();
+
+        this.globalExecutor.shutdown();
+    }
+}
@@ -0,0 +1,33 @@
+package club.hellin.util.basicinventories.scheduler;
+
+import org.bukkit.entity.Player;
+
+/**
+ * Decides which thread menu work runs on, so servers that tick players on separate threads can render them there
+ */
+public interface MenuScheduler {
+    interface Task {
+        void cancel();
+    }
+
+    /**
+     * Runs the task on the thread that owns this player
+     * @param player
+     * @param task
+     */
+    void run(final Player player, final Runnable task);
+
+    /**
+     * Runs the task on the thread that owns global state
+     * @param task
+     */
+    void run(final Runnable task);
+
+    /**
+     * Runs the task on the global thread every period until cancelled
+     * @param task
+     * @param periodTicks
+     * @return
+     */
+    Task runRepeating(final Runnable task, final long periodTicks);
+}
@@ -2,13 +2,12 @@ package club.hellin.util.basicinventories.type;
 
 import club.hellin.util.basicinventories.*;
 import club.hellin.util.basicinventories.objects.InventoryClick;
+import club.hellin.util.basicinventories.utils.HandlerCompiler;
 import club.hellin.util.basicinventories.utils.ItemStackBuilder;
-import de.tr7zw.changeme.nbtapi.NBTItem;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.ToString;
-import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
 import org.bukkit.enchantments.Enchantment;
@@ -16,7 +15,6 @@ import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
 import java.util.Arrays;
@@ -27,8 +25,9 @@ import java.util.stream.Collectors;
 
 @Getter
 public abstract class CaseByCaseInventory extends AbstractInventory {
-    private static final String NBT_TAG = "basic_inventories_item_id_tag";
     private static final int MAX_SIZE = 17;
+    private static final String TOGGLED_ON = ChatColor.translateAlternateColorCodes('&', "&7: &a&lON");
+    private static final String TOGGLED_OFF = ChatColor.translateAlternateColorCodes('&', "&7: &c&lOFF");
 
     @AllArgsConstructor
     @ToString
@@ -37,30 +36,58 @@ public abstract class CaseByCaseInventory extends AbstractInventory {
         private final String coloredName;
         private final String rawName;
         private final @Getter(AccessLevel.NONE) ItemStack item;
+
+        /**
+         * Null when the handler came from a generated {@link InventoryHandlerTable} and is not private
+         */
         private final Method method;
+        private final InventoryClickHandler handler;
         private final CaseByCaseInventory inventory;
         private final int index;
 
+        /**
+         * Returns a copy the caller may modify
+         * @param player
+         * @return
+         */
         public ItemStack getItem(final Player player) {
+            final ItemStack item = this.getRenderedItem(player);
+            return item == null ? null : item.clone();
+        }
+
+        /**
+         * The item setItems renders, may be shared between renders so it must not be modified
+         * @param player
+         * @return
+         */
+        protected ItemStack getRenderedItem(final Player player) {
             return this.item;
         }
     }
 
     @ToString
     public static final class InventorySwitchItem extends InventoryItem {
-        public InventorySwitchItem(final String coloredName, final String rawName, final Method method, final int index, final CaseByCaseInventory inventory) {
-            super(coloredName, rawName, null, method, inventory, index);
+        public InventorySwitchItem(final String coloredName, final String rawName, final Method method, final InventoryClickHandler handler, final int index, final CaseByCaseInventory inventory) {
+            super(coloredName, rawName, null, method, handler, inventory, index);
         }
 
         @Override
         public ItemStack getItem(final Player player) {
+            // Provided fresh every time, no copy needed
+            return this.getRenderedItem(player);
+        }
+
+        @Override
+        protected ItemStack getRenderedItem(final Player player) {
             final InventoryItemProvider provider = super.getInventory().getProvider(player);
 
             if (provider == null)
                 return null;
 
+            final long start = super.getInventory().startTimer();
             ItemStack item = provider.provide();
-            item = super.getInventory().tag(item);
+            super.getInventory().stopTimer(InventoryMetrics.Type.ITEM_PROVIDE, start);
+
             item = super.getInventory().tag(item, super.getIndex());
 
             return item;
@@ -76,41 +103,94 @@ public abstract class CaseByCaseInventory extends AbstractInventory {
         private final Method method;
         private final int index;
 
-        public InventoryToggleItem(final String coloredName, final String rawName, final Method method, final int index, final CaseByCaseInventory inventory) {
-            super(coloredName, rawName, null, method, inventory, index);
+        private final String toggledOnKey;
+        private final String toggledOffKey;
+
+        public InventoryToggleItem(final String coloredName, final String rawName, final Method method, final InventoryClickHandler handler, final int index, final CaseByCaseInventory inventory) {
+            super(coloredName, rawName, null, method, handler, inventory, index);
 
             this.method = method;
             this.index = index;
+
+            this.toggledOnKey = String.format("toggle_%s_true", index);
+            this.toggledOffKey = String.format("toggle_%s_false", index);
         }
 
         @Override
-        public ItemStack getItem(final Player player) {
+        protected ItemStack getRenderedItem(final Player player) {
             final boolean toggled = super.getInventory().isToggledOn(player, super.getRawName());
+            return super.getInventory().getTemplate(toggled ? this.toggledOnKey : this.toggledOffKey, () -> this.buildItem(toggled));
+        }
 
-            final ItemStackBuilder builder = new ItemStackBuilder(toggled ? Material.EMERALD : Material.REDSTONE);
+        private ItemStack buildItem(final boolean toggled) {
+            final ItemStackBuilder builder = ItemStackBuilder.deferred(toggled ? Material.EMERALD : Material.REDSTONE);
 
             builder.addEnchant(Enchantment.KNOCKBACK)
                     .hideEnchants();
 
-            if (toggled)
-                builder.setDisplayName(String.format("%s&7: &a&lON", super.getColoredName()));
-            else
-                builder.setDisplayName(String.format("%s&7: &c&lOFF", super.getColoredName()));
+            builder.setColoredDisplayName(super.getColoredName() + (toggled ? TOGGLED_ON : TOGGLED_OFF));
 
             ItemStack item = builder.build();
-            item = super.getInventory().tag(item);
             item = super.getInventory().tag(item, super.getIndex());
 
             return item;
         }
     }
 
+    /**
+     * Generated handler tables by class, null for classes compiled without the processor
+     */
+    private static final ClassValue<InventoryHandlerTable<CaseByCaseInventory>> HANDLER_TABLES = new ClassValue<>() {
+        @Override
+        protected InventoryHandlerTable<CaseByCaseInventory> computeValue(final Class<?> clazz) {
+            return InventoryHandlerTable.find(clazz);
+        }
+    };
+
     private final Map<Integer, InventoryItem> inventoryItemMap;
 
     public CaseByCaseInventory() {
-        this.inventoryItemMap = this.getHandlers();
+        final InventoryHandlerTable<CaseByCaseInventory> table = HANDLER_TABLES.get(this.getClass());
+        this.inventoryItemMap = table != null ? this.getHandlers(table) : this.getHandlers();
     }
 
+    /**
+     * Builds the items from a generated table, in source order and without reflection except for private handlers
+     * @param table
+     * @return
+     */
+    private Map<Integer, InventoryItem> getHandlers(final InventoryHandlerTable<CaseByCaseInventory> table) {
+        final Map<Integer, InventoryItem> itemMap = new LinkedHashMap<>();
+
+        int currentIndex = 1;
+
+        for (final InventoryHandlerTable.Entry<CaseByCaseInventory> entry : table.getEntries()) {
+            final Method method = entry.getBinder() == null ? this.getPrivateHandler(entry.getMethodName()) : null;
+            final InventoryClickHandler clickHandler = method != null ? HandlerCompiler.compile(this, method) : entry.getBinder().apply(this);
+
+            final InventoryItem item = entry.isToggle()
+                    ? this.createToggleItem(currentIndex, method, clickHandler, entry.getName())
+                    : this.createItem(currentIndex, method, clickHandler, entry.getType(), entry.getName(), entry.getLore(), entry.isEnchanted(), entry.isSwitcher());
+
+            itemMap.put(currentIndex, item);
+            ++currentIndex;
+        }
+
+        return itemMap;
+    }
+
+    private Method getPrivateHandler(final String name) {
+        try {
+            return this.getClass().getDeclaredMethod(name, InventoryClick.class);
+        } catch (final NoSuchMethodException exception) {
+            throw new RuntimeException(String.format("Handler %s in the table of %s no longer exists", name, this.getClass().getName()), exception);
+        }
+    }
+
+    /**
+     * Fallback for classes compiled without the processor, the order of getDeclaredMethods is not guaranteed
+     * @return
+     */
     private Map<Integer, InventoryItem> getHandlers() {
         final Map<Integer, InventoryItem> itemMap = new LinkedHashMap<>();
         final Class<?> clazz = this.getClass();
@@ -136,35 +216,14 @@ public abstract class CaseByCaseInventory extends AbstractInventory {
             if (!InventoryClick.class.isAssignableFrom(paramType))
                 continue;
 
-            if (handler != null) {
-                ItemStackBuilder itemBuilder = new ItemStackBuilder(handler.type()).setDisplayName(handler.name()).setLore(handler.lore());
-                if (handler.enchanted())
-                    itemBuilder.addEnchant(Enchantment.KNOCKBACK).hideEnchants();
-
-                ItemStack item = itemBuilder.build();
-                item = super.tag(item);
-                item = this.tag(item, currentIndex);
-
-                final String displayName = item.getItemMeta().getDisplayName();
-                final String rawName = InventoryManager.getInstance().toEnumName(displayName);
+            // Compiled once here so clicks never go through Method.invoke
+            final InventoryClickHandler clickHandler = HandlerCompiler.compile(this, method);
 
-                final boolean switcher = handler.switcher();
+            if (handler != null)
+                itemMap.put(currentIndex, this.createItem(currentIndex, method, clickHandler, handler.type(), handler.name(), handler.lore(), handler.enchanted(), handler.switcher()));
 
-                if (!switcher) {
-                    final InventoryItem inventoryItem = new InventoryItem(displayName, rawName, item, method, this, currentIndex);
-                    itemMap.put(currentIndex, inventoryItem);
-                } else {
-                    final InventorySwitchItem inventorySwitchItem = new InventorySwitchItem(displayName, rawName, method, currentIndex, this);
-                    itemMap.put(currentIndex, inventorySwitchItem);
-                }
-            }
-
-            if (toggleHandler != null) {
-                final String coloredName = ChatColor.translateAlternateColorCodes('&', toggleHandler.name());
-                final String rawName = InventoryManager.getInstance().toEnumName(coloredName);
-                final InventoryToggleItem toggleItem = new InventoryToggleItem(coloredName, rawName, method, currentIndex, this);
-                itemMap.put(currentIndex, toggleItem);
-            }
+            if (toggleHandler != null)
+                itemMap.put(currentIndex, this.createToggleItem(currentIndex, method, clickHandler, toggleHandler.name()));
 
             ++currentIndex;
         }
@@ -172,10 +231,28 @@ public abstract class CaseByCaseInventory extends AbstractInventory {
         return itemMap;
     }
 
-    private ItemStack tag(final ItemStack item, final int index) {
-        final NBTItem nbtItem = new NBTItem(item);
-        nbtItem.setInteger(NBT_TAG, index);
-        return nbtItem.getItem();
+    private InventoryItem createItem(final int index, final Method method, final InventoryClickHandler clickHandler, final Material type, final String name, final String[] lore, final boolean enchanted, final boolean switcher) {
+        final String displayName = ChatColor.translateAlternateColorCodes('&', name);
+        final String rawName = InventoryManager.getInstance().toEnumName(displayName);
+
+        if (switcher)
+            return new InventorySwitchItem(displayName, rawName, method, clickHandler, index, this);
+
+        ItemStackBuilder itemBuilder = ItemStackBuilder.deferred(type).setColoredDisplayName(displayName).setLore(lore);
+        if (enchanted)
+            itemBuilder.addEnchant(Enchantment.KNOCKBACK).hideEnchants();
+
+        ItemStack item = itemBuilder.build();
+        item = super.tag(item, index);
+
+        return new InventoryItem(displayName, rawName, item, method, clickHandler, this, index);
+    }
+
+    private InventoryItem createToggleItem(final int index, final Method method, final InventoryClickHandler clickHandler, final String name) {
+        final String coloredName = ChatColor.translateAlternateColorCodes('&', name);
+        final String rawName = InventoryManager.getInstance().toEnumName(coloredName);
+
+        return new InventoryToggleItem(coloredName, rawName, method, clickHandler, index, this);
     }
 
     @Override
@@ -203,26 +280,29 @@ public abstract class CaseByCaseInventory extends AbstractInventory {
         if (this.inventoryItemMap.size() > MAX_SIZE)
             throw new RuntimeException("This inventory has too many items");
 
+        final long start = super.startTimer();
         super.addOpen(player);
 
         if (attachment != null)
             super.setAttachment(player, attachment);
 
         final int size = this.getSize(player);
-        final Inventory inventory = Bukkit.createInventory(null, size, super.getTitle());
+        final Inventory inventory = super.createBukkitInventory(player, size, super.getTitle());
+
+        super.render(player, inventory);
+        super.stopTimer(InventoryMetrics.Type.OPEN, start);
 
-        this.setItems(player, inventory);
         return inventory;
     }
 
-    private boolean isBottomRowFree(final Player player, final Inventory inventory) {
+    private boolean isBottomRowFree(final Player player, final ItemStack[] items) {
         final int size = this.getSize(player);
 
         final int start = size - 9;
         int nonAirCount = 0;
 
         for (int i = start; i < size; ++i) {
-            final ItemStack item = inventory.getItem(i);
+            final ItemStack item = items[i];
 
             if (item == null || item.getType() == Material.AIR)
                 continue;
@@ -233,9 +313,17 @@ public abstract class CaseByCaseInventory extends AbstractInventory {
         return nonAirCount == 0;
     }
 
+    private void setItem(final Player player, final ItemStack[] items, final InventoryItem[] slots, final int slot, final InventoryItem inventoryItem) {
+        items[slot] = inventoryItem.getRenderedItem(player);
+        slots[slot] = inventoryItem;
+    }
+
     @Override
     public void setItems(final Player player, final Inventory inventory) {
-        inventory.clear();
+        final ItemStack[] items = new ItemStack[inventory.getSize()];
+
+        // Remembered on the holder so clicks can be routed by slot
+        final InventoryItem[] slots = new InventoryItem[inventory.getSize()];
 
         int row;
         final int spacing = 4;
@@ -256,36 +344,43 @@ public abstract class CaseByCaseInventory extends AbstractInventory {
                 continue;
 
             if (left != null && inventoryItem == null) {
-                inventory.setItem(centerIndex, left.getItem(player));
+                this.setItem(player, items, slots, centerIndex, left);
                 continue;
             }
 
             if (left == null && right == null) {
-                inventory.setItem(centerIndex, inventoryItem.getItem(player));
+                this.setItem(player, items, slots, centerIndex, inventoryItem);
                 continue;
             }
 
             if (left == null) {
-                inventory.setItem(leftIndex, inventoryItem.getItem(player));
-                inventory.setItem(rightIndex, right.getItem(player));
+                this.setItem(player, items, slots, leftIndex, inventoryItem);
+                this.setItem(player, items, slots, rightIndex, right);
                 continue;
             }
 
             if (right == null) {
-                inventory.setItem(leftIndex, left.getItem(player));
-                inventory.setItem(rightIndex, inventoryItem.getItem(player));
+                this.setItem(player, items, slots, leftIndex, left);
+                this.setItem(player, items, slots, rightIndex, inventoryItem);
                 continue;
             }
 
-            inventory.setItem(centerIndex, inventoryItem.getItem(player));
-            inventory.setItem(leftIndex, left.getItem(player));
-            inventory.setItem(rightIndex, right.getItem(player));
+            this.setItem(player, items, slots, centerIndex, inventoryItem);
+            this.setItem(player, items, slots, leftIndex, left);
+            this.setItem(player, items, slots, rightIndex, right);
         }
 
-        if (this.isBottomRowFree(player, inventory)) {
+        if (this.isBottomRowFree(player, items)) {
             final int mid = size - 5;
-            inventory.setItem(mid, super.getBackButton());
+            items[mid] = super.getBackButtonTemplate();
         }
+
+        super.applyItems(inventory, items);
+
+        final BasicInventoryHolder holder = BasicInventoryHolder.of(inventory);
+
+        if (holder != null)
+            holder.setSlots(slots);
     }
 
     private InventoryItem getInventoryItem(final int index) {
@@ -304,29 +399,34 @@ public abstract class CaseByCaseInventory extends AbstractInventory {
         return this.inventoryItemMap.values().stream().map(inventoryItem -> inventoryItem.getItem(player)).collect(Collectors.toList());
     }
 
-    @Override
-    public void handle(final InventoryClick click) {
-        ItemStack item = click.getClickedItem().clone();
-        item.setAmount(1);
+    private InventoryItem getClickedItem(final InventoryClick click) {
+        final BasicInventoryHolder holder = BasicInventoryHolder.of(click.getView());
 
-        final NBTItem nbtItem = new NBTItem(item);
+        // The slot table only covers the top inventory, clicks in the player's own inventory keep the legacy path
+        if (holder != null && holder.getSlots() != null && click.getEvent() != null
+                && click.getEvent().getRawSlot() < click.getView().getTopInventory().getSize())
+            return holder.getSlot(click.getEvent().getRawSlot());
 
-        if (!nbtItem.hasTag(NBT_TAG))
-            return;
+        // Not rendered by setItems, fall back to the index tag on the item
+        final int index = InventoryManager.getInstance().getTagCodec().readIndex(click.getClickedItem());
+        return this.inventoryItemMap.get(index);
+    }
 
-        final int index = nbtItem.getInteger(NBT_TAG);
-        final InventoryItem inventoryItem = this.inventoryItemMap.get(index);
+    @Override
+    public void handle(final InventoryClick click) {
+        final InventoryItem inventoryItem = this.getClickedItem(click);
 
         if (inventoryItem == null)
             return;
 
-        final Method method = inventoryItem.getMethod();
-        method.setAccessible(true);
+        final long start = super.startTimer();
 
         try {
-            method.invoke(this, click);
-        } catch (final IllegalAccessException | InvocationTargetException exception) {
-            exception.printStackTrace();
+            inventoryItem.getHandler().handle(click);
+        } catch (final Throwable throwable) {
+            throwable.printStackTrace();
+        } finally {
+            super.stopTimer(InventoryMetrics.Type.CLICK, start);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,77 @@
+package club.hellin.util.basicinventories.type;
+
+import club.hellin.util.basicinventories.InventoryClickHandler;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.bukkit.Material;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Handlers of a {@link CaseByCaseInventory} subclass in source order, generated at compile time by the processor module.
+ * When a table exists for a class, constructing it needs no reflection.
+ * Plugins enable it with annotationProcessor "com.github.Hellinduction:processor:&lt;version&gt;",
+ * or "com.github.Hellinduction.BasicInventories:processor:&lt;tag&gt;" through JitPack
+ * @param <I>
+ */
+public interface InventoryHandlerTable<I extends CaseByCaseInventory> {
+    String SUFFIX = "_HandlerTable";
+
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    final class Entry<I extends CaseByCaseInventory> {
+        private final String methodName;
+        private final boolean toggle;
+        private final Material type;
+        private final String name;
+        private final String[] lore;
+        private final boolean enchanted;
+        private final boolean switcher;
+
+        /**
+         * Creates the click handler for an instance, null for private methods which are looked up by name instead
+         */
+        private final Function<I, InventoryClickHandler> binder;
+
+        public static <I extends CaseByCaseInventory> Entry<I> handler(final String methodName, final Material type, final String name, final String[] lore, final boolean enchanted, final boolean switcher, final Function<I, InventoryClickHandler> binder) {
+            return new Entry<>(methodName, false, type, name, lore, enchanted, switcher, binder);
+        }
+
+        public static <I extends CaseByCaseInventory> Entry<I> toggle(final String methodName, final String name, final Function<I, InventoryClickHandler> binder) {
+            return new Entry<>(methodName, true, null, name, new String[0], false, false, binder);
+        }
+    }
+
+    List<Entry<I>> getEntries();
+
+    /**
+     * Name of the generated table for a class, nested classes are flattened with underscores
+     * @param clazz
+     * @return
+     */
+    static String getTableName(final Class<?> clazz) {
+        final String packageName = clazz.getPackageName();
+        final String name = packageName.isEmpty() ? clazz.getName() : clazz.getName().substring(packageName.length() + 1);
+        final String tableName = name.replace('$', '_') + SUFFIX;
+
+        return packageName.isEmpty() ? tableName : packageName + "." + tableName;
+    }
+
+    /**
+     * Loads the generated table for a class
+     * @param clazz
+     * @return The table, or null when none was generated
+     */
+    static <I extends CaseByCaseInventory> InventoryHandlerTable<I> find(final Class<?> clazz) {
+        try {
+            final Class<?> tableClass = Class.forName(getTableName(clazz), true, clazz.getClassLoader());
+            return (InventoryHandlerTable<I>) tableClass.getDeclaredConstructor().newInstance();
+        } catch (final ClassNotFoundException ignored) {
+            return null;
+        } catch (final ReflectiveOperationException exception) {
+            throw new RuntimeException(String.format("Could not load the handler table of %s", clazz.getName()), exception);
+        }
+    }
+}
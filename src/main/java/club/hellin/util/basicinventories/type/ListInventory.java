@@ -1,18 +1,27 @@
 package club.hellin.util.basicinventories.type;
 
 import club.hellin.util.basicinventories.AbstractInventory;
+import club.hellin.util.basicinventories.BasicInventoryHolder;
+import club.hellin.util.basicinventories.InventoryManager;
+import club.hellin.util.basicinventories.InventoryMetrics;
+import club.hellin.util.basicinventories.ListSource;
 import club.hellin.util.basicinventories.objects.InventoryClick;
 import club.hellin.util.basicinventories.utils.ItemStackBuilder;
+import club.hellin.util.basicinventories.utils.LruCache;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
 import lombok.Getter;
-import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
 import org.bukkit.enchantments.Enchantment;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryView;
 import org.bukkit.inventory.ItemStack;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -20,24 +29,367 @@ import java.util.stream.Collectors;
 public abstract class ListInventory<E> extends AbstractInventory {
     private static final int MAX_INVENTORY_ROWS = 6;
     private static final int DEFAULT_PAGE_NUMBER = 1;
+    private static final String PAGE_INFO_FORMAT = ChatColor.translateAlternateColorCodes('&', "&aPage Number:&e %s");
 
-    private final Map<UUID, Integer> pageMap = new HashMap<>();
+    private enum Control {
+        PREVIOUS_PAGE,
+        NEXT_PAGE,
+        PAGE_INFO,
+        BACK
+    }
+
+    @AllArgsConstructor
+    @Getter
+    private static final class Snapshot<E> {
+        private final List<E> elements;
+        /**
+         * Index of the first element, only non zero for pages fetched from a ListSource
+         */
+        private final int offset;
+        private final long createdAt;
+    }
+
+    @AllArgsConstructor
+    @Getter
+    private static final class Load<E> {
+        private final CompletableFuture<? extends Collection<E>> future;
+        private final int offset;
+    }
+
+    @AllArgsConstructor
+    @Getter
+    private static final class RenderedItem {
+        private final Object version;
+        private final ItemStack item;
+    }
+
+    private final Map<UUID, Integer> pageMap = new ConcurrentHashMap<>();
+    private volatile @Getter(AccessLevel.NONE) LruCache<E, RenderedItem> renderCache;
+    private final @Getter(AccessLevel.NONE) Map<UUID, Snapshot<E>> snapshotMap = new ConcurrentHashMap<>();
+    private final @Getter(AccessLevel.NONE) Map<UUID, Load<E>> loadingMap = new ConcurrentHashMap<>();
 
     public List<E> getFilteredElements(final Player player) {
-        final List<E> filtered = this.provide(player).stream().filter(element -> this.convertFrom(element).getType() != Material.AIR).collect(Collectors.toList());
+        return this.filter(this.load(player, null, 0, Integer.MAX_VALUE));
+    }
+
+    private List<E> filter(final Collection<E> elements) {
+        // With the render cache the items rendered here are reused by the check on the next load and by the rendered page
+        final boolean cached = this.getRenderCacheSize() > 0;
+        final List<E> filtered = elements.stream().filter(element -> {
+            final ItemStack item = cached ? this.render(element) : this.convertFrom(element);
+            return item != null && item.getType() != Material.AIR;
+        }).collect(Collectors.toList());
+
         return filtered;
     }
 
-    public abstract E convertTo(final ItemStack item);
+    /**
+     * Maximum amount of rendered elements to keep, 0 or less disables the cache.
+     * Every loaded element is checked for air through it, so a size covering the whole list saves converting it on each load.
+     * Elements are used as keys, so they need a proper equals and hashCode
+     * @return
+     */
+    public int getRenderCacheSize() {
+        return 0;
+    }
+
+    /**
+     * A cached item is rendered again once this value changes
+     * @param element
+     * @return
+     */
+    public Object getRenderVersion(final E element) {
+        return null;
+    }
+
+    public long getRenderCacheHits() {
+        return this.renderCache == null ? 0 : this.renderCache.getHits();
+    }
+
+    public long getRenderCacheMisses() {
+        return this.renderCache == null ? 0 : this.renderCache.getMisses();
+    }
+
+    public void clearRenderCache() {
+        if (this.renderCache != null)
+            this.renderCache.clear();
+    }
+
+    /**
+     * Returns the tagged item for this element, shared when cached so it must not be modified
+     * @param element
+     * @return
+     */
+    private ItemStack render(final E element) {
+        final int cacheSize = this.getRenderCacheSize();
+
+        if (cacheSize <= 0)
+            return this.convert(element);
+
+        if (this.renderCache == null || this.renderCache.getMaxSize() != cacheSize)
+            this.renderCache = new LruCache<>(cacheSize);
+
+        final Object version = this.getRenderVersion(element);
+        final RenderedItem cached = this.renderCache.get(element, rendered -> Objects.equals(rendered.getVersion(), version));
+
+        InventoryManager.getInstance().getMetrics().recordCache(super.getRawName(), cached != null);
+
+        if (cached != null)
+            return cached.getItem();
+
+        final ItemStack item = this.convert(element);
+        this.renderCache.put(element, new RenderedItem(version, item));
+
+        return item;
+    }
+
+    private ItemStack convert(final E element) {
+        final ItemStack item = this.convertFrom(element);
+
+        if (item == null)
+            return null;
+
+        return super.tag(item);
+    }
+
+    /**
+     * How long a player's elements are kept before they are loaded again, 0 or less keeps them until refresh or close
+     * @return Time to live in milliseconds
+     */
+    public long getSnapshotTtl() {
+        return 0;
+    }
+
+    /**
+     * Returns the filtered elements for this player, only loading them again after refresh, close or the snapshot TTL.
+     * With a ListSource these are only the elements on the player's current page
+     * @param player
+     * @return
+     */
+    public List<E> getElements(final Player player) {
+        if (this.getSource(player) == null)
+            return this.getElements(player, 0, Integer.MAX_VALUE);
+
+        final int usableSlots = this.getUsableSize(this.getSize(player));
+        final int pageNumber = this.pageMap.getOrDefault(player.getUniqueId(), DEFAULT_PAGE_NUMBER);
+
+        return this.getPage(player, usableSlots, pageNumber);
+    }
+
+    private List<E> getElements(final Player player, final int offset, final int limit) {
+        final UUID uuid = player.getUniqueId();
+        final long now = System.currentTimeMillis();
+        final long ttl = this.getSnapshotTtl();
+        final ListSource<E> source = this.getSource(player);
+
+        Snapshot<E> snapshot = this.snapshotMap.get(uuid);
+
+        if (snapshot != null && snapshot.getOffset() == offset && (ttl <= 0 || now - snapshot.getCreatedAt() <= ttl))
+            return snapshot.getElements();
+
+        final Load<E> load = this.loadingMap.get(uuid);
+
+        if (load == null || load.getOffset() != offset) {
+            final long start = super.startTimer();
+            final CompletableFuture<? extends Collection<E>> future = source == null ? this.provideAsync(player) : source.fetchAsync(player, offset, limit);
+
+            // Whatever was loading before is no longer wanted, the future is not ours to cancel so its result is just ignored
+            if (load != null)
+                this.loadingMap.remove(uuid, load);
+
+            if (future == null) {
+                final Collection<E> elements = this.load(player, source, offset, limit);
+
+                snapshot = new Snapshot<>(this.filter(elements), offset, now);
+                this.snapshotMap.put(uuid, snapshot);
+
+                return snapshot.getElements();
+            }
+
+            final Load<E> newLoad = new Load<>(future, offset);
+            this.loadingMap.put(uuid, newLoad);
+
+            if (future.isDone()) {
+                // Runs right away, so the size and page are computed from the loaded elements
+                future.whenComplete((elements, throwable) -> {
+                    super.stopTimer(InventoryMetrics.Type.PROVIDE, start);
+                    this.storeLoaded(uuid, newLoad, elements, throwable);
+                });
+            } else {
+                future.whenComplete((elements, throwable) -> {
+                    super.stopTimer(InventoryMetrics.Type.PROVIDE, start);
+                    InventoryManager.getInstance().getScheduler().run(player, () -> this.applyLoaded(player, newLoad, elements, throwable));
+                });
+            }
+
+            // It may have completed while the callback was attached
+            snapshot = this.snapshotMap.get(uuid);
+        }
+
+        // Keep showing the expired elements while new ones load
+        if (snapshot == null || snapshot.getOffset() != offset)
+            return Collections.emptyList();
+
+        return snapshot.getElements();
+    }
+
+    /**
+     * Loads synchronously from provide or the source and records how long it took
+     */
+    private Collection<E> load(final Player player, final ListSource<E> source, final int offset, final int limit) {
+        final long start = super.startTimer();
+        final Collection<E> elements = source == null ? this.provide(player) : source.fetch(player, offset, limit);
+        super.stopTimer(InventoryMetrics.Type.PROVIDE, start);
+
+        return elements;
+    }
+
+    /**
+     * Runs on the player's thread once provideAsync or fetchAsync completes
+     */
+    private void applyLoaded(final Player player, final Load<E> load, final Collection<E> elements, final Throwable throwable) {
+        final UUID uuid = player.getUniqueId();
+
+        if (!this.storeLoaded(uuid, load, elements, throwable))
+            return;
+
+        final InventoryView view = player.getOpenInventory();
+
+        if (!player.isOnline() || !this.isInventory(view))
+            return;
+
+        // The open view may still be an older one of this menu while a new one is being created
+        final BasicInventoryHolder holder = BasicInventoryHolder.of(view);
+
+        if (holder != null && holder.getSession() != super.getOpen().get(uuid))
+            return;
+
+        super.renderItems(player, view.getTopInventory());
+    }
+
+    /**
+     * @return Whether the load was still wanted, it is dropped when closed or replaced by a newer load in the meantime
+     */
+    private boolean storeLoaded(final UUID uuid, final Load<E> load, final Collection<E> elements, final Throwable throwable) {
+        if (!this.loadingMap.remove(uuid, load))
+            return false;
+
+        if (throwable != null)
+            throwable.printStackTrace();
+
+        final List<E> filtered = throwable == null && elements != null ? this.filter(elements) : new ArrayList<>();
+        this.snapshotMap.put(uuid, new Snapshot<>(filtered, load.getOffset(), System.currentTimeMillis()));
+
+        return true;
+    }
+
+    /**
+     * @param player
+     * @return Whether the elements this player is waiting for have not arrived yet
+     */
+    public boolean isLoading(final Player player) {
+        final UUID uuid = player.getUniqueId();
+        final Load<E> load = this.loadingMap.get(uuid);
+
+        if (load == null)
+            return false;
+
+        final Snapshot<E> snapshot = this.snapshotMap.get(uuid);
+        return snapshot == null || snapshot.getOffset() != load.getOffset();
+    }
+
+    /**
+     * Drops the player's snapshot and renders their inventory again with fresh elements
+     * @param player
+     */
+    public void refresh(final Player player) {
+        this.update(player);
+    }
+
+    /**
+     * Drops the player's snapshot too, so an update shows fresh elements rather than the ones already loaded
+     * @param player
+     */
+    @Override
+    public void update(final Player player) {
+        this.snapshotMap.remove(player.getUniqueId());
+        super.update(player);
+    }
+
+    @Override
+    public void updateAll() {
+        this.snapshotMap.clear();
+        super.updateAll();
+    }
+
+    /**
+     * Only used for clicks in inventories that were not rendered by setItems, clicks are otherwise resolved by slot
+     * @param item
+     * @return
+     */
+    public E convertTo(final ItemStack item) {
+        return null;
+    }
 
     public abstract ItemStack convertFrom(final E element);
 
-    public abstract Collection<E> provide(final Player player);
+    /**
+     * Override this or provideAsync
+     * @param player
+     * @return
+     */
+    public Collection<E> provide(final Player player) {
+        return new ArrayList<>();
+    }
+
+    /**
+     * Override to load elements off the main thread, a loading layout is shown until the future completes.
+     * Results are applied on the main thread and dropped if the player closed the inventory in the meantime
+     * @param player
+     * @return The elements being loaded, or null to use provide
+     */
+    public CompletableFuture<Collection<E>> provideAsync(final Player player) {
+        return null;
+    }
+
+    /**
+     * Override to page through a data set too large to provide in full, provide and provideAsync are then not used.
+     * Elements for which convertFrom returns air are left out of their page rather than out of the count
+     * @param player
+     * @return
+     */
+    public ListSource<E> getSource(final Player player) {
+        return null;
+    }
+
+    /**
+     * Pages are tracked per player, so list inventories are never shared
+     * @return
+     */
+    @Override
+    public boolean isShared() {
+        return false;
+    }
 
     @Override
     public int getSize(final Player player) {
+        final ListSource<E> source = this.getSource(player);
+
+        if (source != null)
+            return this.getSize(source.count(player));
+
+        final List<E> elements = this.getElements(player);
+
+        // The inventory can not grow once the elements arrive
+        if (this.isLoading(player))
+            return MAX_INVENTORY_ROWS * 9;
+
+        return this.getSize(elements.size());
+    }
+
+    private int getSize(final int elementCount) {
         final int maxSize = MAX_INVENTORY_ROWS * 9;
-        int size = ((this.getFilteredElements(player).size() / 9 + 1) * 9) + (9 * 2);
+        int size = ((elementCount / 9 + 1) * 9) + (9 * 2);
 
         if (size > maxSize)
             size = maxSize;
@@ -45,13 +397,16 @@ public abstract class ListInventory<E> extends AbstractInventory {
         return size;
     }
 
-    private int getUsableSize(final Player player) {
-        return this.getSize(player) - (9 * 2);
+    private int getUsableSize(final int inventorySize) {
+        return inventorySize - (9 * 2);
     }
 
     @Override
     public List<ItemStack> getItems(final Player player) {
-        return this.getFilteredElements(player).stream().map(this::convertFrom).collect(Collectors.toList());
+        return this.getElements(player).stream().map(element -> {
+            final ItemStack item = this.render(element);
+            return item == null ? null : item.clone();
+        }).collect(Collectors.toList());
     }
 
     @Override
@@ -61,6 +416,7 @@ public abstract class ListInventory<E> extends AbstractInventory {
 
     @Override
     public <T> Inventory createInventory(final Player player, final T attachment) {
+        final long start = super.startTimer();
         super.addOpen(player);
 
         if (attachment != null)
@@ -68,23 +424,37 @@ public abstract class ListInventory<E> extends AbstractInventory {
 
         final UUID uuid = player.getUniqueId();
         this.pageMap.put(uuid, DEFAULT_PAGE_NUMBER);
+        this.snapshotMap.remove(uuid);
 
         final int size = this.getSize(player);
-        final Inventory inventory = Bukkit.createInventory(null, size, super.getTitle());
+        final Inventory inventory = super.createBukkitInventory(player, size, super.getTitle());
+
+        super.render(player, inventory);
+        super.stopTimer(InventoryMetrics.Type.OPEN, start);
 
-        this.setItems(player, inventory);
         return inventory;
     }
 
     @Override
     public void handle(final InventoryClick click) {
+        final long start = super.startTimer();
+
+        try {
+            this.dispatch(click);
+        } finally {
+            super.stopTimer(InventoryMetrics.Type.CLICK, start);
+        }
+    }
+
+    private void dispatch(final InventoryClick click) {
         final Player player = click.getWhoClicked();
         final UUID uuid = player.getUniqueId();
         final ItemStack item = click.getClickedItem();
 
         final int currentPage = this.pageMap.getOrDefault(uuid, DEFAULT_PAGE_NUMBER);
+        final int usableSlots = this.getUsableSize(click.getView().getTopInventory().getSize());
         final Consumer<Integer> setNextPage = pageNumber -> {
-            if (!this.pageExists(player, pageNumber)) {
+            if (!this.pageExists(player, usableSlots, pageNumber)) {
                 player.sendMessage(ChatColor.RED + "This page does not exist.");
                 return;
             }
@@ -92,6 +462,36 @@ public abstract class ListInventory<E> extends AbstractInventory {
             this.pageMap.put(uuid, pageNumber);
         };
 
+        final BasicInventoryHolder holder = BasicInventoryHolder.of(click.getView());
+
+        // The slot table only covers the top inventory, clicks in the player's own inventory keep the legacy path
+        if (holder != null && holder.getSlots() != null && click.getEvent() != null
+                && click.getEvent().getRawSlot() < click.getView().getTopInventory().getSize()) {
+            final Object slot = holder.getSlot(click.getEvent().getRawSlot());
+
+            if (slot == null)
+                return;
+
+            if (!(slot instanceof Control)) {
+                this.handle(click, (E) slot);
+                return;
+            }
+
+            switch ((Control) slot) {
+                case PREVIOUS_PAGE:
+                    setNextPage.accept(currentPage - 1);
+                    break;
+                case NEXT_PAGE:
+                    setNextPage.accept(currentPage + 1);
+                    break;
+                default:
+                    break;
+            }
+
+            return;
+        }
+
+        // Not rendered by setItems, fall back to comparing the clicked item
         if (item.isSimilar(this.getPreviousPageButton())) {
             final int nextPage = currentPage - 1;
             setNextPage.accept(nextPage);
@@ -116,22 +516,34 @@ public abstract class ListInventory<E> extends AbstractInventory {
     }
 
     private ItemStack getPreviousPageButton() {
-        ItemStack item = new ItemStackBuilder(Material.RED_CONCRETE).addEnchant(Enchantment.KNOCKBACK).hideEnchants().setDisplayName("&bPrevious Page").build();
-        item = super.tag(item);
-        return item;
+        return super.getTemplate("previous_page_button", () -> {
+            ItemStack item = ItemStackBuilder.deferred(Material.RED_CONCRETE).addEnchant(Enchantment.KNOCKBACK).hideEnchants().setDisplayName("&bPrevious Page").build();
+            item = super.tag(item);
+            return item;
+        });
     }
 
     private ItemStack getNextPageButton() {
-        ItemStack item = new ItemStackBuilder(Material.GREEN_CONCRETE).addEnchant(Enchantment.KNOCKBACK).hideEnchants().setDisplayName("&bNext Page").build();
-        item = super.tag(item);
-        return item;
+        return super.getTemplate("next_page_button", () -> {
+            ItemStack item = ItemStackBuilder.deferred(Material.GREEN_CONCRETE).addEnchant(Enchantment.KNOCKBACK).hideEnchants().setDisplayName("&bNext Page").build();
+            item = super.tag(item);
+            return item;
+        });
+    }
+
+    private ItemStack getLoadingItem() {
+        return super.getTemplate("loading", () -> {
+            ItemStack item = ItemStackBuilder.deferred(Material.CLOCK).setDisplayName("&eLoading...").build();
+            item = super.tag(item);
+            return item;
+        });
     }
 
     private ItemStack getPageInfo(final Player player) {
         final UUID uuid = player.getUniqueId();
         final int page = this.pageMap.getOrDefault(uuid, DEFAULT_PAGE_NUMBER);
 
-        ItemStack item = new ItemStackBuilder(Material.PAPER).addEnchant(Enchantment.KNOCKBACK).hideEnchants().setDisplayName(String.format("&aPage Number:&e %s", page)).build();
+        ItemStack item = ItemStackBuilder.deferred(Material.PAPER).addEnchant(Enchantment.KNOCKBACK).hideEnchants().setColoredDisplayName(String.format(PAGE_INFO_FORMAT, page)).build();
         item = super.tag(item);
         return item;
     }
@@ -140,73 +552,101 @@ public abstract class ListInventory<E> extends AbstractInventory {
 
     @Override
     public void setItems(final Player player, final Inventory inventory) {
-        inventory.clear();
-
         final UUID uuid = player.getUniqueId();
         final int pageNumber = this.pageMap.getOrDefault(uuid, DEFAULT_PAGE_NUMBER);
 
-        final List<E> elements = this.getPage(player, pageNumber);
+        final int size = inventory.getSize();
+        final List<E> elements = this.getPage(player, this.getUsableSize(size), pageNumber);
+
+        // Either the element or the control in each slot, remembered on the holder so clicks can be routed by slot
+        final Object[] slots = new Object[size];
+        final ItemStack[] items = new ItemStack[size];
+        int slot = 0;
+
+        if (this.isLoading(player)) {
+            final int contentRows = this.getUsableSize(size) / 9;
+            items[((contentRows - 1) / 2) * 9 + 4] = this.getLoadingItem();
+        }
 
         for (final E element : elements) {
-            ItemStack item = this.convertFrom(element);
+            final ItemStack item = this.render(element);
 
             if (item == null)
                 continue;
 
-            item = super.tag(item);
-            inventory.addItem(item);
+            items[slot] = item;
+            slots[slot++] = element;
         }
 
         // Add page buttons
-        final int bottomRowFirstIndex = this.getSize(player) - 9;
-        final int bottomRowMidIndex = this.getSize(player) - 5;
-        final int bottomRowLastIndex = this.getSize(player) - 1;
+        final int bottomRowFirstIndex = size - 9;
+        final int bottomRowMidIndex = size - 5;
+        final int bottomRowLastIndex = size - 1;
 
-        inventory.setItem(bottomRowFirstIndex, this.getPreviousPageButton());
-        inventory.setItem(bottomRowMidIndex, this.getPageInfo(player));
-        inventory.setItem(bottomRowLastIndex - 1, super.getBackButton());
-        inventory.setItem(bottomRowLastIndex, this.getNextPageButton());
-    }
+        items[bottomRowFirstIndex] = this.getPreviousPageButton();
+        items[bottomRowMidIndex] = this.getPageInfo(player);
+        items[bottomRowLastIndex - 1] = super.getBackButtonTemplate();
+        items[bottomRowLastIndex] = this.getNextPageButton();
 
-    private boolean pageExists(final Player player, final int pageNumber) {
-        return !this.getPage(player, pageNumber).isEmpty();
-    }
+        super.applyItems(inventory, items);
 
-    private List<E> getPage(final Player player, final int pageNumber) {
-        return this.getPages(player).getOrDefault(pageNumber, new ArrayList<>());
-    }
+        slots[bottomRowFirstIndex] = Control.PREVIOUS_PAGE;
+        slots[bottomRowMidIndex] = Control.PAGE_INFO;
+        slots[bottomRowLastIndex - 1] = Control.BACK;
+        slots[bottomRowLastIndex] = Control.NEXT_PAGE;
 
-    private Map<Integer, List<E>> getPages(final Player player) {
-        final Map<Integer, List<E>> pages = new HashMap<>();
-        final int usableSlots = this.getUsableSize(player);
+        final BasicInventoryHolder holder = BasicInventoryHolder.of(inventory);
 
-        int currentPage = 1;
-        int currentSlot = 0;
+        if (holder != null)
+            holder.setSlots(slots);
+    }
 
-        for (final E element : this.getFilteredElements(player)) {
-            final List<E> list = pages.getOrDefault(currentPage, new ArrayList<>());
+    public int getPageCount(final int elementCount, final int usableSlots) {
+        if (usableSlots <= 0)
+            return 0;
 
-            if (!list.contains(element))
-                list.add(element);
+        return (elementCount + usableSlots - 1) / usableSlots;
+    }
 
-            pages.put(currentPage, list);
+    private boolean pageExists(final Player player, final int usableSlots, final int pageNumber) {
+        final ListSource<E> source = this.getSource(player);
+        final int elementCount = source == null ? this.getElements(player).size() : source.count(player);
 
-            ++currentSlot;
+        return pageNumber >= 1 && pageNumber <= this.getPageCount(elementCount, usableSlots);
+    }
 
-            if (currentSlot == usableSlots) {
-                currentSlot = 0;
-                ++currentPage;
-            }
+    /**
+     * Returns a view of the elements on this page
+     * @param player
+     * @param usableSlots
+     * @param pageNumber
+     * @return
+     */
+    private List<E> getPage(final Player player, final int usableSlots, final int pageNumber) {
+        if (!this.pageExists(player, usableSlots, pageNumber))
+            return Collections.emptyList();
+
+        final int from = (pageNumber - 1) * usableSlots;
+
+        if (this.getSource(player) != null) {
+            final List<E> window = this.getElements(player, from, usableSlots);
+            return window.size() > usableSlots ? window.subList(0, usableSlots) : window;
         }
 
-        return pages;
+        final List<E> elements = this.getElements(player);
+        final int to = Math.min(from + usableSlots, elements.size());
+
+        return elements.subList(from, to);
     }
 
     @Override
-    public void close(final Player player) {
-        final UUID uuid = player.getUniqueId();
+    public void close(final UUID uuid) {
         this.pageMap.remove(uuid);
+        this.snapshotMap.remove(uuid);
+
+        // A load still running completes into nothing, see storeLoaded
+        this.loadingMap.remove(uuid);
 
-        super.close(player);
+        super.close(uuid);
     }
 }
\ No newline at end of file
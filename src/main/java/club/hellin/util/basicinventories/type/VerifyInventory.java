@@ -1,12 +1,12 @@
 package club.hellin.util.basicinventories.type;
 
 import club.hellin.util.basicinventories.AbstractInventory;
+import club.hellin.util.basicinventories.InventoryMetrics;
 import club.hellin.util.basicinventories.InventoryProperties;
 import club.hellin.util.basicinventories.objects.Confirmation;
 import club.hellin.util.basicinventories.objects.InventoryClick;
 import club.hellin.util.basicinventories.utils.ItemStackBuilder;
 import lombok.Getter;
-import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
 import org.bukkit.enchantments.Enchantment;
@@ -15,32 +15,33 @@ import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
 @InventoryProperties(title = "&2Verify")
 @Getter
 public final class VerifyInventory extends AbstractInventory {
-    private final Map<UUID, Consumer<Confirmation>> callbackMap = new HashMap<>();
+    private final Map<UUID, Consumer<Confirmation>> callbackMap = new ConcurrentHashMap<>();
 
     private ItemStack getConfirm() {
-        return new ItemStackBuilder(Material.LIME_CONCRETE)
+        return super.getTemplate("confirm", () -> ItemStackBuilder.deferred(Material.LIME_CONCRETE)
                 .setDisplayName("&a&lConfirm")
                 .addEnchant(Enchantment.KNOCKBACK)
                 .hideEnchants()
-                .build();
+                .build());
     }
 
     private ItemStack getDeny() {
-        return new ItemStackBuilder(Material.RED_CONCRETE)
+        return super.getTemplate("deny", () -> ItemStackBuilder.deferred(Material.RED_CONCRETE)
                 .setDisplayName("&c&lDeny")
                 .addEnchant(Enchantment.KNOCKBACK)
                 .hideEnchants()
-                .build();
+                .build());
     }
 
     @Override
     public List<ItemStack> getItems(final Player player) {
-        return Arrays.asList(this.getConfirm(), this.getDeny());
+        return Arrays.asList(this.getConfirm().clone(), this.getDeny().clone());
     }
 
     @Override
@@ -54,15 +55,18 @@ public final class VerifyInventory extends AbstractInventory {
     }
 
     public <T> Inventory createInventory(final Player player, final String title, final T attachment) {
+        final long start = super.startTimer();
         super.addOpen(player);
 
         if (attachment != null)
             super.setAttachment(player, attachment);
 
         final int size = this.getSize(player);
-        final Inventory inventory = Bukkit.createInventory(null, size, title != null ? ChatColor.translateAlternateColorCodes('&', title) : super.getTitle());
+        final Inventory inventory = super.createBukkitInventory(player, size, title != null ? ChatColor.translateAlternateColorCodes('&', title) : super.getTitle());
+
+        super.render(player, inventory);
+        super.stopTimer(InventoryMetrics.Type.OPEN, start);
 
-        this.setItems(player, inventory);
         return inventory;
     }
 
@@ -77,15 +81,26 @@ public final class VerifyInventory extends AbstractInventory {
         final Player whoClicked = click.getWhoClicked();
 
         whoClicked.closeInventory();
+
+        final long start = super.startTimer();
         callback.accept(confirmation);
+        super.stopTimer(InventoryMetrics.Type.CLICK, start);
+    }
+
+    @Override
+    public void close(final UUID uuid) {
+        this.callbackMap.remove(uuid);
+        super.close(uuid);
     }
 
     @Override
     public void setItems(final Player player, final Inventory inventory) {
-        inventory.clear();
+        final ItemStack[] items = new ItemStack[inventory.getSize()];
+
+        items[2] = this.getConfirm();
+        items[4] = super.getBackButtonTemplate();
+        items[6] = this.getDeny();
 
-        inventory.setItem(2, this.getConfirm());
-        inventory.setItem(4, super.getBackButton());
-        inventory.setItem(6, this.getDeny());
+        super.applyItems(inventory, items);
     }
 }
\ No newline at end of file
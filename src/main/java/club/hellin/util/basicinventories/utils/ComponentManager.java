@@ -2,30 +2,110 @@ package club.hellin.util.basicinventories.utils;
 
 import org.bukkit.plugin.Plugin;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+/**
+ * Reads are lock free and safe from any thread, register and remove are synchronized
+ * @param <T>
+ */
 public abstract class ComponentManager<T> {
-    private final List<T> components = new ArrayList<>();
+    private final List<T> components = new CopyOnWriteArrayList<>();
+    private final Set<T> componentSet = ConcurrentHashMap.newKeySet();
+    private final Map<Class<?>, T> classMap = new ConcurrentHashMap<>();
+
+    /**
+     * Live view for get, writes keep the indexes in sync
+     */
+    private final List<T> view = new AbstractList<>() {
+        @Override
+        public T get(final int index) {
+            return ComponentManager.this.components.get(index);
+        }
+
+        @Override
+        public int size() {
+            return ComponentManager.this.components.size();
+        }
+
+        @Override
+        public void add(final int index, final T component) {
+            ComponentManager.this.register(component);
+        }
+
+        @Override
+        public T remove(final int index) {
+            final T component = ComponentManager.this.components.get(index);
+            ComponentManager.this.remove(component);
+            return component;
+        }
+    };
 
     public abstract void init(final Plugin plugin);
 
-    public void register(final T component) {
-        if (this.components.contains(component))
+    public synchronized void register(final T component) {
+        if (!this.componentSet.add(component))
             return;
 
         this.components.add(component);
+        this.classMap.putIfAbsent(component.getClass(), component);
     }
 
-    public void remove(final T component) {
+    public synchronized void remove(final T component) {
+        if (!this.componentSet.remove(component))
+            return;
+
         this.components.remove(component);
+        this.classMap.remove(component.getClass(), component);
     }
 
     /**
-     * Returns mutable list of Components
+     * Whether this exact instance is registered, an equal but different instance does not count
+     * @param component
      * @return
      */
+    public boolean isRegistered(final T component) {
+        if (!this.componentSet.contains(component))
+            return false;
+
+        for (final T registered : this.components) {
+            if (registered == component)
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the first registered Component of exactly this class
+     * @param clazz
+     * @return
+     */
+    public <C extends T> C get(final Class<C> clazz) {
+        final T component = this.classMap.get(clazz);
+
+        if (component == null)
+            return null;
+
+        return clazz.cast(component);
+    }
+
+    /**
+     * Returns mutable list of Components, adding and removing goes through register and remove
+     * @return
+     * @deprecated Use getComponents to read and register or remove to modify
+     */
+    @Deprecated
     public List<T> get() {
-        return this.components;
+        return this.view;
+    }
+
+    /**
+     * Returns read only list of Components, use register and remove to modify it
+     * @return
+     */
+    public List<T> getComponents() {
+        return Collections.unmodifiableList(this.components);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,65 @@
+package club.hellin.util.basicinventories.utils;
+
+import club.hellin.util.basicinventories.InventoryClickHandler;
+import club.hellin.util.basicinventories.objects.InventoryClick;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Turns handler methods into {@link InventoryClickHandler}s once, so clicks are a plain interface call instead of Method.invoke
+ */
+public final class HandlerCompiler {
+    private static final MethodType HANDLER_TYPE = MethodType.methodType(void.class, InventoryClick.class);
+
+    private HandlerCompiler() {
+    }
+
+    public static InventoryClickHandler compile(final Object target, final Method method) {
+        final boolean isStatic = Modifier.isStatic(method.getModifiers());
+
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(method.getDeclaringClass(), MethodHandles.lookup());
+            final MethodHandle handle = lookup.unreflect(method);
+
+            try {
+                return metafactory(lookup, handle, target, isStatic);
+            } catch (final Throwable ignored) {
+                // The lookup lacks full privilege when the handler lives in another module, a bound handle still avoids Method.invoke
+            }
+
+            return bind(handle, target, isStatic);
+        } catch (final IllegalAccessException ignored) {
+        }
+
+        try {
+            method.setAccessible(true);
+            return bind(MethodHandles.lookup().unreflect(method), target, isStatic);
+        } catch (final IllegalAccessException exception) {
+            throw new RuntimeException(String.format("Could not access handler %s", method), exception);
+        }
+    }
+
+    private static InventoryClickHandler metafactory(final MethodHandles.Lookup lookup, final MethodHandle handle, final Object target, final boolean isStatic) throws Throwable {
+        final MethodType factoryType = isStatic ? MethodType.methodType(InventoryClickHandler.class) : MethodType.methodType(InventoryClickHandler.class, lookup.lookupClass());
+        final CallSite site = LambdaMetafactory.metafactory(lookup, "handle", factoryType, HANDLER_TYPE, handle, HANDLER_TYPE);
+
+        if (isStatic)
+            return (InventoryClickHandler) site.getTarget().invoke();
+
+        return (InventoryClickHandler) site.getTarget().invoke(target);
+    }
+
+    private static InventoryClickHandler bind(MethodHandle handle, final Object target, final boolean isStatic) {
+        if (!isStatic)
+            handle = handle.bindTo(target);
+
+        final MethodHandle bound = handle.asType(HANDLER_TYPE);
+        return click -> bound.invokeExact(click);
+    }
+}
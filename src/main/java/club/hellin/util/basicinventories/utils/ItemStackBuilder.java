@@ -1,5 +1,6 @@
 package club.hellin.util.basicinventories.utils;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.Accessors;
@@ -17,24 +18,59 @@ import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
+/**
+ * Meta changes are written to the item right away, so the wrapped item is up to date without calling build().
+ * A deferred builder collects them on one ItemMeta copy instead and writes it back once in build()
+ */
 @Getter
 @Setter
 @Accessors(chain = true, fluent = true)
 public final class ItemStackBuilder {
     private final ItemStack item;
 
+    private final @Getter(AccessLevel.NONE) boolean deferred;
+    private @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) ItemMeta meta;
+
     public ItemStackBuilder(final Material material) {
-        this.item = new ItemStack(material);
+        this(new ItemStack(material), false);
     }
 
     public ItemStackBuilder(final ItemStack item) {
+        this(item, false);
+    }
+
+    private ItemStackBuilder(final ItemStack item, final boolean deferred) {
         this.item = item;
+        this.deferred = deferred;
+    }
+
+    /**
+     * A builder whose meta changes are only applied on build
+     * @param material
+     * @return
+     */
+    public static ItemStackBuilder deferred(final Material material) {
+        return new ItemStackBuilder(new ItemStack(material), true);
+    }
+
+    /**
+     * A builder whose meta changes are only applied to the item on build
+     * @param item
+     * @return
+     */
+    public static ItemStackBuilder deferred(final ItemStack item) {
+        return new ItemStackBuilder(item, true);
     }
 
     public ItemStack build() {
+        this.applyMeta();
         return this.item;
     }
 
+    public ItemStack item() {
+        return this.build();
+    }
+
     public ItemStackBuilder hideEnchants() {
         this.updateMeta(meta -> meta.addItemFlags(ItemFlag.HIDE_ENCHANTS));
 
@@ -46,13 +82,22 @@ public final class ItemStackBuilder {
     }
 
     public ItemStackBuilder addEnchant(final Enchantment enchant, final int level) {
-        this.item.addUnsafeEnchantment(enchant, level);
+        this.updateMeta(meta -> meta.addEnchant(enchant, level, true));
 
         return this;
     }
 
     public ItemStackBuilder setDisplayName(final String displayName) {
-        this.updateMeta(meta -> meta.setDisplayName(ChatColor.translateAlternateColorCodes('&', displayName)));
+        return this.setColoredDisplayName(ChatColor.translateAlternateColorCodes('&', displayName));
+    }
+
+    /**
+     * Same as setDisplayName for names that already had their color codes translated
+     * @param displayName
+     * @return
+     */
+    public ItemStackBuilder setColoredDisplayName(final String displayName) {
+        this.updateMeta(meta -> meta.setDisplayName(displayName));
 
         return this;
     }
@@ -74,7 +119,7 @@ public final class ItemStackBuilder {
 
     public ItemStackBuilder removeLoreLineIf(final Predicate<String> predicate) {
         this.updateMeta(meta -> {
-            final List<String> lore = new ArrayList<>();
+            final List<String> lore = meta.getLore();
 
             if (lore == null)
                 return;
@@ -87,15 +132,39 @@ public final class ItemStackBuilder {
     }
 
     public ItemStackBuilder setLore(final String... lore) {
-        this.updateMeta(meta -> meta.setLore(Arrays.stream(lore).map(str -> ChatColor.translateAlternateColorCodes('&', str)).collect(Collectors.toList())));
+        return this.setColoredLore(Arrays.stream(lore).map(str -> ChatColor.translateAlternateColorCodes('&', str)).collect(Collectors.toList()));
+    }
+
+    /**
+     * Same as setLore for lines that already had their color codes translated
+     * @param lore
+     * @return
+     */
+    public ItemStackBuilder setColoredLore(final List<String> lore) {
+        this.updateMeta(meta -> meta.setLore(lore));
         return this;
     }
 
+    /**
+     * Returns a copy of the item's meta, or the pending meta of a deferred builder whose changes are applied on build
+     * @return
+     */
     public ItemMeta getMeta() {
-        return this.item.getItemMeta();
+        if (!this.deferred)
+            return this.item.getItemMeta();
+
+        if (this.meta == null)
+            this.meta = this.item.getItemMeta();
+
+        return this.meta;
     }
 
     public ItemStackBuilder updateMeta(final Consumer<ItemMeta> metaConsumer) {
+        if (this.deferred) {
+            metaConsumer.accept(this.getMeta());
+            return this;
+        }
+
         final ItemMeta meta = this.getMeta();
         metaConsumer.accept(meta);
         meta.addItemFlags(ItemFlag.HIDE_ATTRIBUTES);
@@ -105,6 +174,17 @@ public final class ItemStackBuilder {
         return this;
     }
 
+    private void applyMeta() {
+        if (this.meta == null)
+            return;
+
+        this.meta.addItemFlags(ItemFlag.HIDE_ATTRIBUTES);
+        this.meta.addItemFlags(ItemFlag.HIDE_DESTROYS);
+        this.item.setItemMeta(this.meta);
+
+        this.meta = null;
+    }
+
     public ItemStackBuilder unbreakable() {
         this.updateMeta(meta -> meta.setUnbreakable(true));
         return this;
@@ -114,4 +194,4 @@ public final class ItemStackBuilder {
         this.item.setAmount(amount);
         return this;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,31 @@
+package club.hellin.util.basicinventories.utils;
+
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Reads and writes the tags this library puts on its items
+ */
+public interface ItemTagCodec {
+    int NO_INDEX = -1;
+
+    /**
+     * Writes every tag in a single pass
+     * @param item
+     * @param inventory Raw name of the owning inventory
+     * @param index Item index, or NO_INDEX to leave it out
+     * @return A tagged copy of the item
+     */
+    ItemStack write(final ItemStack item, final String inventory, final int index);
+
+    /**
+     * @param item
+     * @return Raw name of the owning inventory, or null when untagged
+     */
+    String readInventory(final ItemStack item);
+
+    /**
+     * @param item
+     * @return Item index, or NO_INDEX when untagged
+     */
+    int readIndex(final ItemStack item);
+}
@@ -0,0 +1,28 @@
+package club.hellin.util.basicinventories.utils;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Builds static items once and keeps them, templates are shared and must never be modified
+ */
+public final class ItemTemplateCache {
+    private final Map<String, ItemStack> templates = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the shared template, safe to pass to Inventory#setItem as Bukkit copies it
+     * @param key
+     * @param factory
+     * @return
+     */
+    public ItemStack get(final String key, final Supplier<ItemStack> factory) {
+        return this.templates.computeIfAbsent(key, ignored -> factory.get());
+    }
+
+    public void invalidate() {
+        this.templates.clear();
+    }
+}
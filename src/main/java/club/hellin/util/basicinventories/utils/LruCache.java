@@ -0,0 +1,66 @@
+package club.hellin.util.basicinventories.utils;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Size bounded map that evicts the least recently used entry and counts hits and misses, all access is synchronized
+ * @param <K>
+ * @param <V>
+ */
+@Getter
+public final class LruCache<K, V> {
+    private final int maxSize;
+    private final @Getter(AccessLevel.NONE) Map<K, V> map;
+
+    private volatile long hits;
+    private volatile long misses;
+
+    public LruCache(final int maxSize) {
+        this.maxSize = maxSize;
+        this.map = new LinkedHashMap<K, V>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<K, V> eldest) {
+                return this.size() > LruCache.this.maxSize;
+            }
+        };
+    }
+
+    public synchronized V get(final K key) {
+        return this.get(key, value -> true);
+    }
+
+    /**
+     * Counts a hit only when the cached value is still valid, an invalid value is returned as null
+     * @param key
+     * @param valid
+     * @return
+     */
+    public synchronized V get(final K key, final Predicate<V> valid) {
+        final V value = this.map.get(key);
+
+        if (value == null || !valid.test(value)) {
+            ++this.misses;
+            return null;
+        }
+
+        ++this.hits;
+        return value;
+    }
+
+    public synchronized void put(final K key, final V value) {
+        this.map.put(key, value);
+    }
+
+    public synchronized int size() {
+        return this.map.size();
+    }
+
+    public synchronized void clear() {
+        this.map.clear();
+    }
+}
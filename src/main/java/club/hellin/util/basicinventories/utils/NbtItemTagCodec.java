@@ -0,0 +1,55 @@
+package club.hellin.util.basicinventories.utils;
+
+import de.tr7zw.changeme.nbtapi.NBTItem;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Stores tags through NBT-API, kept for servers without a PersistentDataContainer
+ */
+public final class NbtItemTagCodec implements ItemTagCodec {
+    private static final String INVENTORY_TAG = "basic_inventories_inventory_tag";
+    private static final String INDEX_TAG = "basic_inventories_item_id_tag";
+
+    @Override
+    public ItemStack write(ItemStack item, final String inventory, final int index) {
+        item = item.clone();
+
+        if (item.getAmount() <= 0)
+            item.setAmount(1);
+
+        final NBTItem nbtItem = new NBTItem(item);
+        nbtItem.setString(INVENTORY_TAG, inventory);
+
+        if (index != NO_INDEX)
+            nbtItem.setInteger(INDEX_TAG, index);
+
+        return nbtItem.getItem();
+    }
+
+    @Override
+    public String readInventory(final ItemStack item) {
+        final NBTItem nbtItem = this.read(item);
+
+        if (!nbtItem.hasTag(INVENTORY_TAG))
+            return null;
+
+        return nbtItem.getString(INVENTORY_TAG);
+    }
+
+    @Override
+    public int readIndex(final ItemStack item) {
+        final NBTItem nbtItem = this.read(item);
+
+        if (!nbtItem.hasTag(INDEX_TAG))
+            return NO_INDEX;
+
+        return nbtItem.getInteger(INDEX_TAG);
+    }
+
+    private NBTItem read(ItemStack item) {
+        item = item.clone();
+        item.setAmount(Math.max(item.getAmount(), 1));
+
+        return new NBTItem(item);
+    }
+}
@@ -0,0 +1,80 @@
+package club.hellin.util.basicinventories.utils;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Stores tags in the item's PersistentDataContainer, no NMS access and one meta copy per write
+ */
+public final class PdcItemTagCodec implements ItemTagCodec {
+    private final NamespacedKey inventoryKey;
+    private final NamespacedKey indexKey;
+
+    public PdcItemTagCodec(final Plugin plugin) {
+        this.inventoryKey = new NamespacedKey(plugin, "basic_inventories_inventory_tag");
+        this.indexKey = new NamespacedKey(plugin, "basic_inventories_item_id_tag");
+    }
+
+    public static boolean isSupported() {
+        try {
+            ItemMeta.class.getMethod("getPersistentDataContainer");
+            return true;
+        } catch (final NoSuchMethodException exception) {
+            return false;
+        }
+    }
+
+    @Override
+    public ItemStack write(ItemStack item, final String inventory, final int index) {
+        item = item.clone();
+
+        if (item.getAmount() <= 0)
+            item.setAmount(1);
+
+        final ItemMeta meta = item.getItemMeta();
+
+        if (meta == null)
+            return item;
+
+        final PersistentDataContainer container = meta.getPersistentDataContainer();
+        container.set(this.inventoryKey, PersistentDataType.STRING, inventory);
+
+        if (index != NO_INDEX)
+            container.set(this.indexKey, PersistentDataType.INTEGER, index);
+
+        item.setItemMeta(meta);
+        return item;
+    }
+
+    @Override
+    public String readInventory(final ItemStack item) {
+        final PersistentDataContainer container = this.read(item);
+
+        if (container == null)
+            return null;
+
+        return container.get(this.inventoryKey, PersistentDataType.STRING);
+    }
+
+    @Override
+    public int readIndex(final ItemStack item) {
+        final PersistentDataContainer container = this.read(item);
+
+        if (container == null)
+            return NO_INDEX;
+
+        final Integer index = container.get(this.indexKey, PersistentDataType.INTEGER);
+        return index == null ? NO_INDEX : index;
+    }
+
+    private PersistentDataContainer read(final ItemStack item) {
+        if (item == null || !item.hasItemMeta())
+            return null;
+
+        return item.getItemMeta().getPersistentDataContainer();
+    }
+}